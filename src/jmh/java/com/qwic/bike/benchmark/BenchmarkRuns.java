@@ -0,0 +1,102 @@
+package com.qwic.bike.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.qwic.bike.TestUtil;
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Inputs for the benchmarks, in the same shapes as the tests use.
+ */
+public abstract class BenchmarkRuns {
+
+	/**
+	 * All runs start after this
+	 */
+	public static final LocalDateTime CURRENT_DATE_TIME = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	/**
+	 * Fixed seed, so every fork plans the same runs
+	 */
+	private static final long SEED = 42;
+
+	private static final DateTimeFormatter JSON_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+	public enum Shape {
+		/**
+		 * No run clashes, every run is selected
+		 */
+		NON_CLASHING,
+		/**
+		 * Every run clashes with its neighbours, one long group
+		 */
+		ADJACENT_CLASHES,
+		/**
+		 * All runs start on the same day, random durations
+		 */
+		SAME_START,
+		/**
+		 * All runs end on the same day, random durations
+		 */
+		SAME_END
+	}
+
+	/**
+	 * @param shape
+	 * @param size
+	 *            exact number of runs
+	 * @return shuffled runs
+	 */
+	public static List<ProductionRun> create(final Shape shape, final int size) {
+		final Random random = new Random(SEED);
+		final LocalDateTime start = CURRENT_DATE_TIME.plusDays(1);
+
+		final List<ProductionRun> runs;
+		switch (shape) {
+		case NON_CLASHING:
+			runs = TestUtil.createNonClashingRuns(size, start);
+			break;
+		case ADJACENT_CLASHES:
+			final List<ProductionRun> nonClashing = TestUtil.createNonClashingRuns(size / 2 + 1, start);
+			runs = new ArrayList<>(nonClashing);
+			runs.addAll(TestUtil.createAdjacentClashes(nonClashing));
+			break;
+		case SAME_START:
+			runs = TestUtil.createSameStart(size, start, random);
+			break;
+		case SAME_END:
+			// durations are at most 100 days, so every run starts after the current date
+			runs = TestUtil.createSameEnd(size, start.plusDays(100), random);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown shape " + shape);
+		}
+
+		final List<ProductionRun> sized = new ArrayList<>(runs.subList(0, size));
+		// the order clients send runs in is random
+		Collections.shuffle(sized, random);
+		return sized;
+	}
+
+	/**
+	 * @param runs
+	 * @return a JSON list, in the layout our clients send
+	 */
+	public static String toJson(final List<ProductionRun> runs) {
+		final StringBuilder json = new StringBuilder(runs.size() * 64).append('[');
+		for (int i = 0; i < runs.size(); i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"startingDay\":\"").append(JSON_FORMAT.format(runs.get(i).getStartDateTime()))
+					.append("\",\"duration\":").append(runs.get(i).getDurationDays()).append('}');
+		}
+		return json.append(']').toString();
+	}
+
+}
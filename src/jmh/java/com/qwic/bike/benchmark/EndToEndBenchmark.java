@@ -0,0 +1,83 @@
+package com.qwic.bike.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.qwic.bike.BikeApplication;
+import com.qwic.bike.benchmark.BenchmarkRuns.Shape;
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+/**
+ * {@link PlannerService}, from a JSON string to the answer, as configured in a
+ * running application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EndToEndBenchmark {
+
+	@Param({ "NON_CLASHING", "ADJACENT_CLASHES", "SAME_START", "SAME_END" })
+	private Shape shape;
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int size;
+
+	@Param({ "STREAMING", "DATABIND" })
+	private String parseMode;
+
+	private ConfigurableApplicationContext context;
+	private PlannerService plannerService;
+	private String json;
+
+	@Setup
+	public void setup() {
+		context = new SpringApplicationBuilder(BikeApplication.class).web(WebApplicationType.NONE).properties(
+				"qwic-test-props.parse-mode=" + parseMode,
+				// every invocation must solve, not hit the cache
+				"qwic-test-props.plan-cache-size=0",
+				// room for the largest input
+				"qwic-test-props.max-quantity-of-runs=1000000",
+				// don't measure logging
+				"logging.level.com.qwic.bike=ERROR").run();
+		plannerService = context.getBean(PlannerService.class);
+
+		json = BenchmarkRuns.toJson(BenchmarkRuns.create(shape, size));
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<ProductionRun> maximiseNonClashingRuns() throws IOException {
+		return plannerService.maximiseNonClashingRuns(json, BenchmarkRuns.CURRENT_DATE_TIME);
+	}
+
+	@Benchmark
+	public int countNonClashingRuns() throws IOException {
+		return plannerService.countNonClashingRuns(json, BenchmarkRuns.CURRENT_DATE_TIME);
+	}
+
+}
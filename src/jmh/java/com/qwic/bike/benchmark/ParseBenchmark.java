@@ -0,0 +1,71 @@
+package com.qwic.bike.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qwic.bike.benchmark.BenchmarkRuns.Shape;
+import com.qwic.bike.json.PlannerJsonModule;
+import com.qwic.bike.json.ProductionRunStreamParser;
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.planner.RunColumns;
+
+/**
+ * Parsing a JSON list of runs, with both parse modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark {
+
+	@Param({ "NON_CLASHING", "ADJACENT_CLASHES", "SAME_START", "SAME_END" })
+	private Shape shape;
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int size;
+
+	private ObjectMapper mapper;
+	private ProductionRunStreamParser streamParser;
+	private byte[] json;
+
+	@Setup
+	public void setup() {
+		// same as PlannerService
+		mapper = new ObjectMapper();
+		mapper.findAndRegisterModules();
+		mapper.registerModule(new PlannerJsonModule());
+		streamParser = new ProductionRunStreamParser(mapper.getFactory());
+
+		json = BenchmarkRuns.toJson(BenchmarkRuns.create(shape, size)).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public List<ProductionRun> databind() throws IOException {
+		return mapper.readValue(json, new TypeReference<List<ProductionRun>>() {
+		});
+	}
+
+	@Benchmark
+	public RunColumns streaming() throws IOException {
+		return streamParser.parse(json);
+	}
+
+}
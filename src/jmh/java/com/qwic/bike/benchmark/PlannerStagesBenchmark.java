@@ -0,0 +1,115 @@
+package com.qwic.bike.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qwic.bike.benchmark.BenchmarkRuns.Shape;
+import com.qwic.bike.planner.ColumnarPlanner;
+import com.qwic.bike.planner.GreedyEndDateStrategy;
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.planner.RunColumns;
+import com.qwic.bike.planner.SchedulingStrategy;
+
+/**
+ * Each stage of {@link ColumnarPlanner}, on its own. Every stage gets the
+ * output of the stage before, prepared once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlannerStagesBenchmark {
+
+	/**
+	 * Same as application.properties
+	 */
+	private static final long MAX_RUN_DURATION = 1000;
+
+	@Param({ "NON_CLASHING", "ADJACENT_CLASHES", "SAME_START", "SAME_END" })
+	private Shape shape;
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int size;
+
+	private final SchedulingStrategy greedy = new GreedyEndDateStrategy();
+
+	private RunColumns runs;
+	private int[] validRuns;
+	private int[] sortedRuns;
+	private int[] groupOffsets;
+
+	@Setup
+	public void setup() {
+		runs = RunColumns.of(BenchmarkRuns.create(shape, size));
+		validRuns = ColumnarPlanner.removeInvalidRuns(runs, BenchmarkRuns.CURRENT_DATE_TIME, MAX_RUN_DURATION);
+		sortedRuns = validRuns.clone();
+		ColumnarPlanner.sortByEndDate(runs, sortedRuns);
+		groupOffsets = ColumnarPlanner.getClashGroups(runs, sortedRuns);
+	}
+
+	@Benchmark
+	public int[] removeInvalidRuns() {
+		return ColumnarPlanner.removeInvalidRuns(runs, BenchmarkRuns.CURRENT_DATE_TIME, MAX_RUN_DURATION);
+	}
+
+	/**
+	 * Includes copying the unsorted indices, the sort is in place
+	 */
+	@Benchmark
+	public int[] sortByEndDate() {
+		final int[] indices = validRuns.clone();
+		ColumnarPlanner.sortByEndDate(runs, indices);
+		return indices;
+	}
+
+	@Benchmark
+	public int[] presolve() {
+		return ColumnarPlanner.presolve(runs, sortedRuns);
+	}
+
+	@Benchmark
+	public int[] getClashGroups() {
+		return ColumnarPlanner.getClashGroups(runs, sortedRuns);
+	}
+
+	@Benchmark
+	public int[] greedySolve() {
+		return ColumnarPlanner.getNonClashingRunsFromClashGroups(runs, sortedRuns, groupOffsets, greedy);
+	}
+
+	/**
+	 * Includes allocating the blockers, compare to {@link #greedySolve()}
+	 */
+	@Benchmark
+	public int[] greedySolveExplained() {
+		return ColumnarPlanner.getNonClashingRunsFromClashGroups(runs, sortedRuns, groupOffsets, greedy,
+				new int[sortedRuns.length]);
+	}
+
+	/**
+	 * All stages, from columns to selected runs
+	 */
+	@Benchmark
+	public PlanResult plan() {
+		return ColumnarPlanner.plan(runs, BenchmarkRuns.CURRENT_DATE_TIME, MAX_RUN_DURATION, greedy);
+	}
+
+	@Benchmark
+	public int count() {
+		return ColumnarPlanner.countNonClashingRuns(runs, BenchmarkRuns.CURRENT_DATE_TIME, MAX_RUN_DURATION);
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.qwic.bike.api;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.qwic.bike.api.request.BacklogDeltaRequest;
+import com.qwic.bike.api.response.ProductionCycleResponse;
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.properties.QwicTestProperties;
+import com.qwic.bike.service.Backlog;
+import com.qwic.bike.service.BacklogService;
+import com.qwic.bike.service.PlanningScheduler;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Named backlogs of runs, held by the server. A backlog is sent in full once,
+ * then only changes are sent.
+ * <p>
+ * Every response has an ETag for the backlog's plan. GET never changes a
+ * backlog, and with <code>If-None-Match</code> gives 304 Not Modified if the
+ * plan hasn't changed. PUT and PATCH with <code>If-Match</code> only change
+ * the backlog if it still has the ETag, or give 412 Precondition Failed.
+ */
+@RestController
+public class BacklogController {
+
+	private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+	@Autowired
+	private BacklogService backlogService;
+
+	@Autowired
+	private PlanningScheduler planningScheduler;
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	/**
+	 * Create a backlog, or replace the backlog with the same name
+	 * 
+	 * @param name
+	 *            letters, digits, '.', '_' or '-'
+	 * @param runs
+	 *            an empty list or body gives an empty backlog
+	 * @param ifMatch
+	 *            optional, only replace the backlog if it has one of these ETags
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are left out of the
+	 *            plan. Default: now
+	 * @return 201 Created for a new backlog, 200 OK for a replaced backlog. 412
+	 *         Precondition Failed if the ETag doesn't match.
+	 */
+	@PutMapping(path = "/backlogs/{name}", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<ResponseEntity<ProductionCycleResponse>> putBacklog(@PathVariable final String name,
+			@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final List<String> ifMatch,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime) {
+
+		checkName(name);
+		final LocalDateTime now = currentDateTime == null ? LocalDateTime.now() : currentDateTime;
+
+		return (runs == null ? Flux.<ProductionRun>empty() : runs).doOnNext(this::checkRun)
+				.collectList()
+				.flatMap(list -> schedule(() -> {
+					// the plan of the backlog that was stored, even if it is replaced meanwhile
+					final Backlog.Snapshot plan = backlogService.putBacklog(name, list, now, join(ifMatch));
+					return toResponse(plan.isCreated() ? HttpStatus.CREATED : HttpStatus.OK, plan);
+				}));
+	}
+
+	/**
+	 * Remove, then add runs. Removed runs that aren't in the backlog are ignored.
+	 * 
+	 * @param name
+	 * @param delta
+	 * @param ifMatch
+	 *            optional, only change the backlog if it has one of these ETags
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @return the plan after the change. 404 Not Found if there is no backlog
+	 *         with the name, 412 Precondition Failed if the ETag doesn't match.
+	 */
+	@PatchMapping(path = "/backlogs/{name}", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<ResponseEntity<ProductionCycleResponse>> updateBacklog(@PathVariable final String name,
+			@RequestBody final BacklogDeltaRequest delta,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final List<String> ifMatch,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime) {
+
+		final LocalDateTime now = currentDateTime == null ? LocalDateTime.now() : currentDateTime;
+		final List<ProductionRun> added = delta.getAdd() == null ? Collections.emptyList() : delta.getAdd();
+		final List<ProductionRun> removed = delta.getRemove() == null ? Collections.emptyList() : delta.getRemove();
+		added.forEach(this::checkRun);
+
+		return schedule(() -> toResponse(HttpStatus.OK,
+				backlogService.updateBacklog(name, added, removed, now, join(ifMatch))));
+	}
+
+	/**
+	 * Get the maximum amount of non-clashing runs of a backlog. The backlog isn't
+	 * changed.
+	 * 
+	 * @param name
+	 * @param ifNoneMatch
+	 *            optional, ETags of plans the client already has
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are left out of the
+	 *            plan. Default: now
+	 * @return 304 Not Modified if the ETag matches. 404 Not Found if there is no
+	 *         backlog with the name.
+	 */
+	@GetMapping("/backlogs/{name}")
+	public Mono<ResponseEntity<ProductionCycleResponse>> getBacklogPlan(@PathVariable final String name,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final List<String> ifNoneMatch,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime) {
+
+		final LocalDateTime now = currentDateTime == null ? LocalDateTime.now() : currentDateTime;
+
+		return schedule(() -> {
+			final Backlog.Snapshot plan = backlogService.getBacklogPlan(name, now);
+			final String eTags = join(ifNoneMatch);
+			if (plan != null && eTags != null && plan.isMatch(eTags))
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(plan.getETag())
+						.<ProductionCycleResponse>build();
+			return toResponse(HttpStatus.OK, plan);
+		});
+	}
+
+	/**
+	 * @param name
+	 * @return 204 No Content. 404 Not Found if there is no backlog with the name.
+	 */
+	@DeleteMapping("/backlogs/{name}")
+	public ResponseEntity<Void> deleteBacklog(@PathVariable final String name) {
+		if (!backlogService.deleteBacklog(name))
+			throw notFound(name);
+		return ResponseEntity.noContent().build();
+	}
+
+	private <T> Mono<T> schedule(final Callable<T> task) {
+		return planningScheduler.schedule(task, qwicTestProperties.getPlanningDeadline());
+	}
+
+	private static ResponseEntity<ProductionCycleResponse> toResponse(final HttpStatus status,
+			final Backlog.Snapshot plan) {
+		if (plan == null)
+			return ResponseEntity.notFound().build();
+		return ResponseEntity.status(status).eTag(plan.getETag()).body(
+				new ProductionCycleResponse(plan.getTotals().getRuns(), plan.getTotals().getBikes()));
+	}
+
+	/**
+	 * @return the values of a header that may be repeated, comma separated, or
+	 *         null if there are none
+	 */
+	private static String join(final List<String> values) {
+		return values == null || values.isEmpty() ? null : String.join(",", values);
+	}
+
+	private static void checkName(final String name) {
+		if (!NAME.matcher(name).matches())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'name' must be 1 to 64 letters, digits, '.', '_' or '-'");
+	}
+
+	/**
+	 * Refuse the runs the planner would leave out, so a backlog's plan is the
+	 * same as a plan of its runs from scratch
+	 */
+	private void checkRun(final ProductionRun run) {
+		if (run.getStartDateTime() == null)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing 'startingDay'");
+		if (run.getDurationDays() <= 0)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'duration' must be positive");
+		if (run.getDurationDays() >= qwicTestProperties.getMaxRunDuration())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'duration' must be less than " + qwicTestProperties.getMaxRunDuration());
+	}
+
+	private static ResponseStatusException notFound(final String name) {
+		return new ResponseStatusException(HttpStatus.NOT_FOUND, "No backlog " + name);
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.qwic.bike.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.planner.PlanStage;
+import com.qwic.bike.planner.RunColumns;
+import com.qwic.bike.service.PlanDiagnostics;
+import com.qwic.bike.service.PlanDiagnostics.PlanRecord;
+
+/**
+ * Sampled plans, at <code>/actuator/plans</code>.
+ * <p>
+ * The list only gives a summary of each plan. The groups and selected runs of a
+ * plan are rendered when it is asked for, at
+ * <code>/actuator/plans/{id}</code>.
+ */
+@Component
+@Endpoint(id = "plans")
+public class PlanDiagnosticsEndpoint {
+
+	@Autowired
+	private PlanDiagnostics planDiagnostics;
+
+	@ReadOperation
+	public List<Map<String, Object>> plans() {
+		final List<Map<String, Object>> summaries = new ArrayList<>();
+		for (final PlanRecord record : planDiagnostics.getRecords()) {
+			summaries.add(summarise(record));
+		}
+		return summaries;
+	}
+
+	/**
+	 * @param id
+	 * @return null if the plan wasn't sampled or has been overwritten, which
+	 *         gives 404
+	 */
+	@ReadOperation
+	public Map<String, Object> plan(@Selector final long id) {
+		final PlanRecord record = planDiagnostics.getRecord(id);
+		if (record == null)
+			return null;
+
+		final PlanResult plan = record.getPlan();
+		final RunColumns runs = plan.getRuns();
+
+		final List<List<String>> groups = new ArrayList<>(plan.getGroupCount());
+		for (int g = 0; g < plan.getGroupCount(); g++) {
+			final List<String> group = new ArrayList<>(plan.getGroupEnd(g) - plan.getGroupStart(g));
+			for (int i = plan.getGroupStart(g); i < plan.getGroupEnd(g); i++) {
+				group.add(render(runs, plan.getSortedRuns()[i]));
+			}
+			groups.add(group);
+		}
+
+		final List<String> selected = new ArrayList<>(plan.getSelectedCount());
+		for (final int run : plan.getSelectedRuns()) {
+			selected.add(render(runs, run));
+		}
+
+		final Map<String, Object> details = summarise(record);
+		details.put("groups", groups);
+		details.put("selected", selected);
+		return details;
+	}
+
+	private static Map<String, Object> summarise(final PlanRecord record) {
+		final PlanResult plan = record.getPlan();
+
+		final Map<String, Object> stageMillis = new LinkedHashMap<>();
+		for (final PlanStage stage : PlanStage.values()) {
+			stageMillis.put(stage.getTag(), plan.getStageNanos(stage) / 1e6);
+		}
+
+		final Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("id", record.getId());
+		summary.put("planned", record.getPlanned().toString());
+		summary.put("strategy", record.getStrategyName());
+		summary.put("currentDateTime", record.getCurrentDateTime().toString());
+		summary.put("inputRuns", plan.getInputSize());
+		summary.put("invalidRuns", plan.getInvalidCount());
+		summary.put("presolvedRuns", plan.getPresolvedCount());
+		summary.put("groupCount", plan.getGroupCount());
+		summary.put("largestGroupRuns", plan.getLargestGroupSize());
+		summary.put("selectedRuns", plan.getSelectedCount());
+		summary.put("selectedBikes", plan.getSelectedQuantity());
+		summary.put("stageMillis", stageMillis);
+		return summary;
+	}
+
+	/**
+	 * Index, start, duration and quantity of a run
+	 */
+	private static String render(final RunColumns runs, final int run) {
+		return "#" + run + " " + runs.getStartDateTime(run) + " " + runs.getDurationDays(run) + "d x"
+				+ runs.getQuantity(run);
+	}
+
+}
@@ -0,0 +1,413 @@
+package com.qwic.bike.api;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.qwic.bike.api.response.AlternativeSchedulesResponse;
+import com.qwic.bike.api.response.CapacityResponse;
+import com.qwic.bike.api.response.ClashIndexResponse;
+import com.qwic.bike.api.response.EarliestSlotResponse;
+import com.qwic.bike.api.response.LineAssignmentResponse;
+import com.qwic.bike.api.response.OccupancyResponse;
+import com.qwic.bike.api.response.PlanCacheResponse;
+import com.qwic.bike.api.response.ProductionCycleResponse;
+import com.qwic.bike.api.response.ProductionLinesResponse;
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.planner.CapacityReport;
+import com.qwic.bike.planner.LinePlan;
+import com.qwic.bike.planner.PlanCache;
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.planner.PlanTotals;
+import com.qwic.bike.planner.RunColumns;
+import com.qwic.bike.properties.QwicTestProperties;
+import com.qwic.bike.service.PlannerMetrics;
+import com.qwic.bike.service.PlannerService;
+import com.qwic.bike.service.PlanningScheduler;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+public class PlannerController {
+
+	@Autowired
+	private PlannerService plannerService;
+
+	@Autowired
+	private PlanningScheduler planningScheduler;
+
+	@Autowired
+	private PlannerMetrics plannerMetrics;
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	/**
+	 * Get the maximum amount of non-clashing runs.
+	 * <p>
+	 * Accepts a JSON list of runs, or a stream of runs with one run per line
+	 * (<code>application/x-ndjson</code>). Runs are folded into columns as they
+	 * are decoded, so the request body is never buffered in full.
+	 * <p>
+	 * Planning runs on the {@link PlanningScheduler}, never on the event loop. If
+	 * too many requests are waiting, or the deadline passes, the response is 503
+	 * Service Unavailable.
+	 * 
+	 * @param runs
+	 *            an empty list or body gives 0
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @param explain
+	 *            optional, also give the <code>rejectedRuns</code> and the
+	 *            <code>blockingRuns</code> that clash with them, as positions in
+	 *            the input. Not cached.
+	 * @return
+	 */
+	@PostMapping(path = "/production-cycle", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<ProductionCycleResponse> maximiseNonClashingRuns(
+			@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis,
+			@RequestParam(defaultValue = "false") final boolean explain) {
+
+		if (explain)
+			return solve(runs, currentDateTime, deadlineMillis, plannerService::explainNonClashingRuns)
+					.map(PlannerController::toExplainedResponse);
+		return plan(runs, currentDateTime, deadlineMillis, plannerService::getProductionCycle);
+	}
+
+	/**
+	 * Count the maximum amount of non-clashing runs. Same as
+	 * <code>/production-cycle</code>, but the runs are only counted, never
+	 * selected.
+	 * 
+	 * @param runs
+	 *            an empty list or body gives 0
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @return
+	 */
+	@PostMapping(path = "/production-cycle/count", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<ProductionCycleResponse> countNonClashingRuns(
+			@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis) {
+
+		return plan(runs, currentDateTime, deadlineMillis, plannerService::totalNonClashingRuns);
+	}
+
+	/**
+	 * Get the maximum amount of runs that can be placed on several identical
+	 * assembly lines, and the line each selected run is assigned to. Lines are
+	 * numbered from 0.
+	 * 
+	 * @param runs
+	 *            an empty list or body gives 0
+	 * @param lines
+	 *            optional, number of assembly lines. Default: 1
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @return
+	 */
+	@PostMapping(path = "/production-cycle/lines", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<ProductionLinesResponse> planLines(@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam(defaultValue = "1") final int lines,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis) {
+
+		final int maxLines = qwicTestProperties.getMaxAssemblyLines();
+		if (lines < 1 || lines > maxLines)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'lines' must be from 1 to " + maxLines);
+
+		return solve(runs, currentDateTime, deadlineMillis,
+				(columns, now) -> plannerService.planLines(columns, now, lines))
+						.map(PlannerController::toLinesResponse);
+	}
+
+	/**
+	 * Get different schedules that all have the maximum amount of non-clashing
+	 * runs, to choose from. Only the schedules that are returned are generated.
+	 * 
+	 * @param runs
+	 *            an empty list or body gives one empty schedule
+	 * @param limit
+	 *            most schedules to return, at most
+	 *            <code>qwic-test-props.max-alternative-schedules</code>
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @return
+	 */
+	@PostMapping(path = "/production-cycle/alternatives", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<AlternativeSchedulesResponse> findAlternativeSchedules(
+			@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam(defaultValue = "10") final int limit,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis) {
+
+		final int maxSchedules = qwicTestProperties.getMaxAlternativeSchedules();
+		if (limit < 1 || limit > maxSchedules)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be from 1 to " + maxSchedules);
+
+		return solve(runs, currentDateTime, deadlineMillis,
+				(columns, now) -> plannerService.findOptimalSchedules(columns, now, limit))
+						.map(schedules -> new AlternativeSchedulesResponse(
+								schedules.isEmpty() ? 0 : schedules.get(0).length, schedules));
+	}
+
+	/**
+	 * Measure the line occupancy if every run was accepted: the peak number of
+	 * runs on any day, the fewest lines that fit every run, and the number of runs
+	 * on each day.
+	 * 
+	 * @param runs
+	 *            an empty list or body gives 0
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @return
+	 */
+	@PostMapping(path = "/production-cycle/capacity", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<CapacityResponse> analyseCapacity(@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis) {
+
+		return solve(runs, currentDateTime, deadlineMillis, plannerService::analyseCapacity)
+				.map(PlannerController::toCapacityResponse);
+	}
+
+	/**
+	 * Find the earliest day that a run of each duration could start, without
+	 * clashing with the planned schedule of the runs
+	 * 
+	 * @param runs
+	 *            the backlog to plan
+	 * @param durations
+	 *            one or more <code>duration</code> parameters, in days
+	 * @param after
+	 *            optional, runs start on a later day than this. Default: the
+	 *            current date
+	 * @param currentDateTime
+	 *            optional, runs starting on or before this are removed. Default:
+	 *            now
+	 * @param deadlineMillis
+	 *            optional, cancel planning after this long. Can only shorten the
+	 *            configured deadline.
+	 * @return a start day for each duration, in the same order
+	 */
+	@PostMapping(path = "/production-cycle/earliest-slots", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<List<EarliestSlotResponse>> findEarliestSlots(
+			@RequestBody(required = false) final Flux<ProductionRun> runs,
+			@RequestParam("duration") final long[] durations,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime after,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime currentDateTime,
+			@RequestParam(required = false) final Long deadlineMillis) {
+
+		for (final long duration : durations) {
+			if (duration <= 0)
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'duration' must be positive");
+		}
+
+		return solve(runs, currentDateTime, deadlineMillis, (columns, now) -> {
+			final LocalDate[] starts = plannerService.findEarliestStarts(columns, now, after == null ? now : after,
+					durations);
+
+			final List<EarliestSlotResponse> slots = new ArrayList<>(durations.length);
+			for (int i = 0; i < durations.length; i++) {
+				slots.add(new EarliestSlotResponse(durations[i], starts[i]));
+			}
+			return slots;
+		});
+	}
+
+	/**
+	 * Index a backlog of runs, so that proposed runs can be checked against it
+	 * with <code>/production-cycle/clash-index/{id}/clashes</code>. Only the most
+	 * recent <code>qwic-test-props.max-clash-indexes</code> indexes are kept.
+	 * 
+	 * @param runs
+	 *            every run is indexed, even runs in the past
+	 * @return the id of the index, random so that it can't be guessed
+	 */
+	@PostMapping(path = "/production-cycle/clash-index", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_STREAM_JSON_VALUE, PlannerWebConfiguration.APPLICATION_NDJSON_VALUE })
+	public Mono<ClashIndexResponse> indexRuns(@RequestBody(required = false) final Flux<ProductionRun> runs) {
+		return solve(runs, null, null, (columns, now) -> new ClashIndexResponse(plannerService.indexRuns(columns),
+				columns.size()));
+	}
+
+	/**
+	 * Get the runs of an indexed backlog that clash with a proposed run
+	 * 
+	 * @param id
+	 *            from <code>/production-cycle/clash-index</code>
+	 * @param startingDay
+	 *            of the proposed run
+	 * @param duration
+	 *            of the proposed run, in days
+	 * @return the clashing runs, sorted by start date. 404 Not Found if the index
+	 *         is unknown, 410 Gone if it was evicted for newer indexes.
+	 */
+	@GetMapping("/production-cycle/clash-index/{id}/clashes")
+	public List<ProductionRun> getClashes(@PathVariable final long id,
+			@RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime startingDay,
+			@RequestParam final long duration) {
+		if (duration <= 0)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'duration' must be positive");
+
+		final List<ProductionRun> clashes = plannerService.getClashes(id, startingDay, duration);
+		if (clashes == null)
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown clash index " + id);
+		return clashes;
+	}
+
+	/**
+	 * Counters of the cache of recent answers
+	 * 
+	 * @return
+	 */
+	@GetMapping("/production-cycle/cache")
+	public PlanCacheResponse getPlanCache() {
+		final PlanCache<PlanTotals> cache = plannerService.getPlanCache();
+		if (cache == null)
+			return new PlanCacheResponse(false, 0, 0, 0, 0, 0);
+		return new PlanCacheResponse(true, cache.size(), cache.getMaxSize(), cache.getHitCount(),
+				cache.getMissCount(), cache.getEvictionCount());
+	}
+
+	private Mono<ProductionCycleResponse> plan(final Flux<ProductionRun> runs, final LocalDateTime currentDateTime,
+			final Long deadlineMillis, final BiFunction<RunColumns, LocalDateTime, PlanTotals> solve) {
+
+		return solve(runs, currentDateTime, deadlineMillis, solve)
+				.map(totals -> new ProductionCycleResponse(totals.getRuns(), totals.getBikes()));
+	}
+
+	/**
+	 * Collect the runs, then solve them on the planning threads. The time to
+	 * collect them is recorded as the parse time of every endpoint.
+	 */
+	private <T> Mono<T> solve(final Flux<ProductionRun> runs, final LocalDateTime currentDateTime,
+			final Long deadlineMillis, final BiFunction<RunColumns, LocalDateTime, T> solve) {
+
+		final LocalDateTime now = currentDateTime == null ? LocalDateTime.now() : currentDateTime;
+		final Duration deadline = getDeadline(deadlineMillis);
+
+		// an empty list is a valid request, so the body is optional
+		final Mono<RunColumns> columns = Mono.defer(() -> {
+			final long decodeStart = System.nanoTime();
+			return collectColumns(runs == null ? Flux.empty() : runs)
+					.doOnNext(c -> plannerMetrics.recordDecode(System.nanoTime() - decodeStart));
+		});
+
+		return columns.flatMap(c -> planningScheduler.schedule(() -> solve.apply(c, now), deadline));
+	}
+
+	private static ProductionCycleResponse toExplainedResponse(final PlanResult plan) {
+		final ProductionCycleResponse response = new ProductionCycleResponse(plan.getSelectedCount(),
+				plan.getSelectedQuantity());
+		response.setRejectedRuns(plan.getRejectedRuns());
+
+		final int[] blockingRuns = plan.getBlockingRuns();
+		final Integer[] blockers = new Integer[blockingRuns.length];
+		for (int i = 0; i < blockingRuns.length; i++) {
+			blockers[i] = blockingRuns[i] < 0 ? null : blockingRuns[i];
+		}
+		response.setBlockingRuns(blockers);
+		return response;
+	}
+
+	private static CapacityResponse toCapacityResponse(final CapacityReport report) {
+		final List<OccupancyResponse> histogram = new ArrayList<>(report.getSegmentCount());
+
+		for (int i = 0; i < report.getSegmentCount(); i++) {
+			histogram.add(new OccupancyResponse(report.getSegmentFrom(i), report.getSegmentTo(i),
+					report.getSegmentOccupancy(i)));
+		}
+
+		return new CapacityResponse(report.getPeakDepth(), report.getPeakDay(), report.getMinimumLines(), histogram);
+	}
+
+	private static ProductionLinesResponse toLinesResponse(final LinePlan plan) {
+		final RunColumns columns = plan.getRuns();
+		final List<LineAssignmentResponse> assignments = new ArrayList<>(plan.getSelectedCount());
+
+		for (int i = 0; i < plan.getSelectedCount(); i++) {
+			final ProductionRun run = columns.getRun(plan.getSelectedRun(i));
+			assignments.add(new LineAssignmentResponse(run.getStartDateTime(), run.getDurationDays(),
+					run.getQuantity(), plan.getLine(i)));
+		}
+
+		return new ProductionLinesResponse(plan.getSelectedCount(), plan.getSelectedQuantity(), plan.getLineCount(),
+				assignments);
+	}
+
+	private Duration getDeadline(final Long deadlineMillis) {
+		final Duration configured = qwicTestProperties.getPlanningDeadline();
+		if (deadlineMillis == null)
+			return configured;
+		if (deadlineMillis <= 0)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'deadlineMillis' must be positive");
+
+		final Duration requested = Duration.ofMillis(deadlineMillis);
+		return requested.compareTo(configured) < 0 ? requested : configured;
+	}
+
+	/**
+	 * Fold runs into columns as they arrive. Each run can be garbage collected as
+	 * soon as it has been added.
+	 */
+	private Mono<RunColumns> collectColumns(final Flux<ProductionRun> runs) {
+		final long maxQuantityOfRuns = qwicTestProperties.getMaxQuantityOfRuns();
+
+		return runs.collect(RunColumns.Builder::new, (builder, run) -> {
+			if (builder.size() + 1 >= maxQuantityOfRuns)
+				throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+						"At most " + (maxQuantityOfRuns - 1) + " runs are accepted");
+			if (run.getStartDateTime() == null)
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing 'startingDay'");
+			builder.add(run.getStartDay(), run.getStartNanoOfDay(), run.getDurationDays(), run.getQuantity());
+		}).map(RunColumns.Builder::build);
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.qwic.bike.api;
+
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.qwic.bike.service.BacklogConflictException;
+import com.qwic.bike.service.BacklogLimitException;
+import com.qwic.bike.service.ClashIndexEvictedException;
+import com.qwic.bike.service.PlannerOverloadedException;
+
+/**
+ * Responses for planning that was rejected or cancelled, for every controller
+ */
+@RestControllerAdvice
+public class PlannerExceptionHandlers {
+
+	/**
+	 * Seconds a client should wait before retrying an overloaded planner
+	 */
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	@ExceptionHandler(PlannerOverloadedException.class)
+	public ResponseEntity<String> handleOverloaded(final PlannerOverloadedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(e.getMessage());
+	}
+
+	@ExceptionHandler(TimeoutException.class)
+	public ResponseEntity<String> handleDeadline(final TimeoutException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+				.body("Planning did not finish before the deadline");
+	}
+
+	@ExceptionHandler(BacklogLimitException.class)
+	public ResponseEntity<String> handleBacklogLimit(final BacklogLimitException e) {
+		return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(e.getMessage());
+	}
+
+	@ExceptionHandler(BacklogConflictException.class)
+	public ResponseEntity<String> handleBacklogConflict(final BacklogConflictException e) {
+		return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+	}
+
+	@ExceptionHandler(ClashIndexEvictedException.class)
+	public ResponseEntity<String> handleClashIndexEvicted(final ClashIndexEvictedException e) {
+		return ResponseEntity.status(HttpStatus.GONE).body(e.getMessage());
+	}
+
+}
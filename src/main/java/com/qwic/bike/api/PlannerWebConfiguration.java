@@ -0,0 +1,42 @@
+package com.qwic.bike.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qwic.bike.json.PlannerJsonModule;
+
+@Configuration
+public class PlannerWebConfiguration implements WebFluxConfigurer {
+
+	/**
+	 * Newline delimited JSON, one production run per line
+	 */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Registered with the web codecs' object mapper by Spring Boot, so request
+	 * bodies use the fast production run deserializer
+	 */
+	@Bean
+	public PlannerJsonModule plannerJsonModule() {
+		return new PlannerJsonModule();
+	}
+
+	@Override
+	public void configureHttpMessageCodecs(final ServerCodecConfigurer configurer) {
+		// each line is decoded as it arrives, like application/stream+json
+		configurer.customCodecs().decoder(new Jackson2JsonDecoder(objectMapper, APPLICATION_NDJSON));
+	}
+
+}
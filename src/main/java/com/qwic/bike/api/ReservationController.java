@@ -0,0 +1,85 @@
+package com.qwic.bike.api;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.qwic.bike.api.response.ReservationResponse;
+import com.qwic.bike.properties.QwicTestProperties;
+import com.qwic.bike.service.ReservationService;
+
+/**
+ * Live reservations of days on the line. A run is reserved if none of its days
+ * are reserved yet, without waiting for a plan.
+ */
+@RestController
+public class ReservationController {
+
+	@Autowired
+	private ReservationService reservationService;
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	/**
+	 * Reserve a run on the line, if it fits
+	 * 
+	 * @param startingDay
+	 *            today or later
+	 * @param duration
+	 *            in days, less than <code>qwic-test-props.max-run-duration</code>.
+	 *            The run must end within the reservation horizon.
+	 * @return 201 Created. 409 Conflict if a day of the run is already reserved.
+	 */
+	@PostMapping("/reservations")
+	public ResponseEntity<ReservationResponse> reserve(
+			@RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime startingDay,
+			@RequestParam final long duration) {
+		checkRun(startingDay, duration);
+
+		if (!reservationService.reserve(startingDay, duration))
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "A day of the run is already reserved");
+		return ResponseEntity.status(HttpStatus.CREATED).body(new ReservationResponse(startingDay, duration));
+	}
+
+	/**
+	 * Release a reserved run
+	 * 
+	 * @param startingDay
+	 * @param duration
+	 * @return 204 No Content. 404 Not Found unless a run with exactly these days
+	 *         is reserved.
+	 */
+	@DeleteMapping("/reservations")
+	public ResponseEntity<Void> release(
+			@RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) final LocalDateTime startingDay,
+			@RequestParam final long duration) {
+		checkRun(startingDay, duration);
+
+		if (!reservationService.release(startingDay, duration))
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No run is reserved with these days");
+		return ResponseEntity.noContent().build();
+	}
+
+	private void checkRun(final LocalDateTime startingDay, final long duration) {
+		if (duration <= 0)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'duration' must be positive");
+		if (duration >= qwicTestProperties.getMaxRunDuration())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'duration' must be less than " + qwicTestProperties.getMaxRunDuration());
+		if (!reservationService.isInHorizon(startingDay, duration))
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"The run must start today or later and end within " + reservationService.getHorizonDays()
+							+ " days");
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.qwic.bike.api.request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Runs to remove from, then add to, a backlog
+ */
+public class BacklogDeltaRequest {
+	private List<ProductionRun> add = new ArrayList<>();
+	/**
+	 * Runs equal to these are removed, one for each
+	 */
+	private List<ProductionRun> remove = new ArrayList<>();
+
+	public BacklogDeltaRequest() {
+	}
+
+	public BacklogDeltaRequest(List<ProductionRun> add, List<ProductionRun> remove) {
+		this.add = add;
+		this.remove = remove;
+	}
+
+	public List<ProductionRun> getAdd() {
+		return add;
+	}
+
+	public void setAdd(List<ProductionRun> add) {
+		this.add = add;
+	}
+
+	public List<ProductionRun> getRemove() {
+		return remove;
+	}
+
+	public void setRemove(List<ProductionRun> remove) {
+		this.remove = remove;
+	}
+}
@@ -0,0 +1,39 @@
+package com.qwic.bike.api.response;
+
+import java.util.List;
+
+public class AlternativeSchedulesResponse {
+	/**
+	 * Runs in every schedule
+	 */
+	private long productionCycle;
+	/**
+	 * Different schedules, each as the positions of its runs in the input,
+	 * sorted by end date
+	 */
+	private List<int[]> schedules;
+
+	public AlternativeSchedulesResponse() {
+	}
+
+	public AlternativeSchedulesResponse(long productionCycle, List<int[]> schedules) {
+		this.productionCycle = productionCycle;
+		this.schedules = schedules;
+	}
+
+	public long getProductionCycle() {
+		return productionCycle;
+	}
+
+	public void setProductionCycle(long productionCycle) {
+		this.productionCycle = productionCycle;
+	}
+
+	public List<int[]> getSchedules() {
+		return schedules;
+	}
+
+	public void setSchedules(List<int[]> schedules) {
+		this.schedules = schedules;
+	}
+}
@@ -0,0 +1,65 @@
+package com.qwic.bike.api.response;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class CapacityResponse {
+	/**
+	 * Most runs on any day
+	 */
+	private int peakDepth;
+	/**
+	 * First day with the most runs, null if there are no runs
+	 */
+	private LocalDate peakDay;
+	/**
+	 * Fewest lines that every run fits on
+	 */
+	private int minimumLines;
+	/**
+	 * Runs on each day, from the first start to the last end
+	 */
+	private List<OccupancyResponse> histogram;
+
+	public CapacityResponse() {
+	}
+
+	public CapacityResponse(int peakDepth, LocalDate peakDay, int minimumLines, List<OccupancyResponse> histogram) {
+		this.peakDepth = peakDepth;
+		this.peakDay = peakDay;
+		this.minimumLines = minimumLines;
+		this.histogram = histogram;
+	}
+
+	public int getPeakDepth() {
+		return peakDepth;
+	}
+
+	public void setPeakDepth(int peakDepth) {
+		this.peakDepth = peakDepth;
+	}
+
+	public LocalDate getPeakDay() {
+		return peakDay;
+	}
+
+	public void setPeakDay(LocalDate peakDay) {
+		this.peakDay = peakDay;
+	}
+
+	public int getMinimumLines() {
+		return minimumLines;
+	}
+
+	public void setMinimumLines(int minimumLines) {
+		this.minimumLines = minimumLines;
+	}
+
+	public List<OccupancyResponse> getHistogram() {
+		return histogram;
+	}
+
+	public void setHistogram(List<OccupancyResponse> histogram) {
+		this.histogram = histogram;
+	}
+}
@@ -0,0 +1,36 @@
+package com.qwic.bike.api.response;
+
+public class ClashIndexResponse {
+	/**
+	 * Id to check runs against, until the index is evicted
+	 */
+	private long id;
+	/**
+	 * Runs in the index
+	 */
+	private int runs;
+
+	public ClashIndexResponse() {
+	}
+
+	public ClashIndexResponse(long id, int runs) {
+		this.id = id;
+		this.runs = runs;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public void setRuns(int runs) {
+		this.runs = runs;
+	}
+}
@@ -0,0 +1,35 @@
+package com.qwic.bike.api.response;
+
+import java.time.LocalDate;
+
+/**
+ * The earliest day a run of a duration could start, without a clash
+ */
+public class EarliestSlotResponse {
+	private long duration;
+	private LocalDate startingDay;
+
+	public EarliestSlotResponse() {
+	}
+
+	public EarliestSlotResponse(long duration, LocalDate startingDay) {
+		this.duration = duration;
+		this.startingDay = startingDay;
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	public LocalDate getStartingDay() {
+		return startingDay;
+	}
+
+	public void setStartingDay(LocalDate startingDay) {
+		this.startingDay = startingDay;
+	}
+}
@@ -0,0 +1,58 @@
+package com.qwic.bike.api.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * A selected run, and the assembly line it is assigned to
+ */
+public class LineAssignmentResponse {
+	private LocalDateTime startingDay;
+	private long duration;
+	private long quantity;
+	/**
+	 * From 0
+	 */
+	private int line;
+
+	public LineAssignmentResponse() {
+	}
+
+	public LineAssignmentResponse(LocalDateTime startingDay, long duration, long quantity, int line) {
+		this.startingDay = startingDay;
+		this.duration = duration;
+		this.quantity = quantity;
+		this.line = line;
+	}
+
+	public LocalDateTime getStartingDay() {
+		return startingDay;
+	}
+
+	public void setStartingDay(LocalDateTime startingDay) {
+		this.startingDay = startingDay;
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(long quantity) {
+		this.quantity = quantity;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public void setLine(int line) {
+		this.line = line;
+	}
+}
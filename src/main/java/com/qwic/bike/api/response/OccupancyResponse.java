@@ -0,0 +1,45 @@
+package com.qwic.bike.api.response;
+
+import java.time.LocalDate;
+
+/**
+ * Days, from and to inclusive, that all have the same number of runs
+ */
+public class OccupancyResponse {
+	private LocalDate from;
+	private LocalDate to;
+	private int runs;
+
+	public OccupancyResponse() {
+	}
+
+	public OccupancyResponse(LocalDate from, LocalDate to, int runs) {
+		this.from = from;
+		this.to = to;
+		this.runs = runs;
+	}
+
+	public LocalDate getFrom() {
+		return from;
+	}
+
+	public void setFrom(LocalDate from) {
+		this.from = from;
+	}
+
+	public LocalDate getTo() {
+		return to;
+	}
+
+	public void setTo(LocalDate to) {
+		this.to = to;
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public void setRuns(int runs) {
+		this.runs = runs;
+	}
+}
@@ -0,0 +1,71 @@
+package com.qwic.bike.api.response;
+
+public class PlanCacheResponse {
+	private boolean enabled;
+	private int size;
+	private int maxSize;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public PlanCacheResponse() {
+	}
+
+	public PlanCacheResponse(boolean enabled, int size, int maxSize, long hitCount, long missCount,
+			long evictionCount) {
+		this.enabled = enabled;
+		this.size = size;
+		this.maxSize = maxSize;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public void setHitCount(long hitCount) {
+		this.hitCount = hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public void setMissCount(long missCount) {
+		this.missCount = missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public void setEvictionCount(long evictionCount) {
+		this.evictionCount = evictionCount;
+	}
+}
@@ -1,7 +1,23 @@
 package com.qwic.bike.api.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProductionCycleResponse {
 	private long productionCycle;
+	/**
+	 * Bikes assembled by the selected runs
+	 */
+	private long bikes;
+	/**
+	 * Only if asked for: positions in the input of the runs that were rejected
+	 */
+	private int[] rejectedRuns;
+	/**
+	 * Only if asked for: for each rejected run, the position in the input of a
+	 * selected run that clashes with it, or null if none does
+	 */
+	private Integer[] blockingRuns;
 
 	public ProductionCycleResponse() {
 	}
@@ -10,6 +26,11 @@ public class ProductionCycleResponse {
 		this.productionCycle = productionCycle;
 	}
 
+	public ProductionCycleResponse(long productionCycle, long bikes) {
+		this.productionCycle = productionCycle;
+		this.bikes = bikes;
+	}
+
 	public long getProductionCycle() {
 		return productionCycle;
 	}
@@ -17,4 +38,28 @@ public class ProductionCycleResponse {
 	public void setProductionCycle(long productionCycle) {
 		this.productionCycle = productionCycle;
 	}
+
+	public long getBikes() {
+		return bikes;
+	}
+
+	public void setBikes(long bikes) {
+		this.bikes = bikes;
+	}
+
+	public int[] getRejectedRuns() {
+		return rejectedRuns;
+	}
+
+	public void setRejectedRuns(int[] rejectedRuns) {
+		this.rejectedRuns = rejectedRuns;
+	}
+
+	public Integer[] getBlockingRuns() {
+		return blockingRuns;
+	}
+
+	public void setBlockingRuns(Integer[] blockingRuns) {
+		this.blockingRuns = blockingRuns;
+	}
 }
@@ -0,0 +1,61 @@
+package com.qwic.bike.api.response;
+
+import java.util.List;
+
+public class ProductionLinesResponse {
+	/**
+	 * Runs placed on all lines
+	 */
+	private long productionCycle;
+	/**
+	 * Bikes assembled by the selected runs
+	 */
+	private long bikes;
+	private int lines;
+	/**
+	 * Selected runs, sorted by end date
+	 */
+	private List<LineAssignmentResponse> runs;
+
+	public ProductionLinesResponse() {
+	}
+
+	public ProductionLinesResponse(long productionCycle, long bikes, int lines, List<LineAssignmentResponse> runs) {
+		this.productionCycle = productionCycle;
+		this.bikes = bikes;
+		this.lines = lines;
+		this.runs = runs;
+	}
+
+	public long getProductionCycle() {
+		return productionCycle;
+	}
+
+	public void setProductionCycle(long productionCycle) {
+		this.productionCycle = productionCycle;
+	}
+
+	public long getBikes() {
+		return bikes;
+	}
+
+	public void setBikes(long bikes) {
+		this.bikes = bikes;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public List<LineAssignmentResponse> getRuns() {
+		return runs;
+	}
+
+	public void setRuns(List<LineAssignmentResponse> runs) {
+		this.runs = runs;
+	}
+}
@@ -0,0 +1,38 @@
+package com.qwic.bike.api.response;
+
+import java.time.LocalDateTime;
+
+public class ReservationResponse {
+	/**
+	 * First day of the reserved run
+	 */
+	private LocalDateTime startingDay;
+	/**
+	 * Days reserved, from the starting day
+	 */
+	private long duration;
+
+	public ReservationResponse() {
+	}
+
+	public ReservationResponse(LocalDateTime startingDay, long duration) {
+		this.startingDay = startingDay;
+		this.duration = duration;
+	}
+
+	public LocalDateTime getStartingDay() {
+		return startingDay;
+	}
+
+	public void setStartingDay(LocalDateTime startingDay) {
+		this.startingDay = startingDay;
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+}
@@ -0,0 +1,231 @@
+package com.qwic.bike.json;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Decodes the fixed timestamp layout our clients send,
+ * <code>yyyy-MM-ddTHH:mm:ss.SSSZ</code>, straight from the raw characters.
+ * <p>
+ * E.g. <code>2018-01-02T00:00:00.000Z</code>
+ * <p>
+ * No strings or temporal objects are created while decoding. Any other layout
+ * is not decoded, and should be passed to a general parser, e.g.
+ * {@link #parse(String)}.
+ * <p>
+ * A small cache keeps the {@link LocalDateTime} of recently seen timestamps, so
+ * inputs with many runs on the same day share one instance. The cache is safe
+ * to use from many threads.
+ */
+public class IsoDateTimeDecoder {
+
+	/**
+	 * Returned by {@link #decodeEpochMilli(char[], int, int)} when the text is
+	 * not in the fixed layout
+	 */
+	public static final long NOT_DECODED = Long.MIN_VALUE;
+
+	public static final long MILLIS_PER_DAY = 86_400_000L;
+
+	private static final int LAYOUT_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSSZ".length();
+
+	/**
+	 * Days from 0000-01-01 to 1970-01-01, as in {@link LocalDate#toEpochDay()}
+	 */
+	private static final long DAYS_0000_TO_1970 = 719_528L;
+
+	/**
+	 * Must be a power of 2
+	 */
+	private static final int DEFAULT_CACHE_SIZE = 256;
+
+	private final Entry[] cache;
+
+	public IsoDateTimeDecoder() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param cacheSize
+	 *            rounded up to a power of 2
+	 */
+	public IsoDateTimeDecoder(final int cacheSize) {
+		this.cache = new Entry[Integer.highestOneBit(Math.max(cacheSize - 1, 1)) << 1];
+	}
+
+	/**
+	 * Decode to a date time, using the cache of recently seen timestamps.
+	 *
+	 * @param text
+	 * @param offset
+	 * @param length
+	 * @return the UTC date time, or null if the text is not in the fixed layout
+	 */
+	public LocalDateTime decode(final char[] text, final int offset, final int length) {
+		if (length != LAYOUT_LENGTH)
+			return null;
+
+		final int slot = hash(text, offset, length) & (cache.length - 1);
+		final Entry entry = cache[slot];
+		if (entry != null && entry.matches(text, offset)) {
+			return entry.dateTime;
+		}
+
+		final long epochMilli = decodeEpochMilli(text, offset, length);
+		if (epochMilli == NOT_DECODED)
+			return null;
+
+		final LocalDateTime dateTime = LocalDateTime.of(LocalDate.ofEpochDay(toEpochDay(epochMilli)),
+				LocalTime.ofNanoOfDay(toNanoOfDay(epochMilli)));
+		// entries are immutable, so a racing thread sees either the old or new entry
+		cache[slot] = new Entry(text, offset, length, dateTime);
+
+		return dateTime;
+	}
+
+	/**
+	 * Decode the fixed layout to milliseconds since the epoch, in UTC.
+	 *
+	 * @param text
+	 * @param offset
+	 * @param length
+	 * @return the epoch milli, or {@link #NOT_DECODED}
+	 */
+	public static long decodeEpochMilli(final char[] text, final int offset, final int length) {
+		if (length != LAYOUT_LENGTH)
+			return NOT_DECODED;
+
+		// check separators first, they are the cheapest way to reject a layout
+		if (text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T'
+				|| text[offset + 13] != ':' || text[offset + 16] != ':' || text[offset + 19] != '.'
+				|| text[offset + 23] != 'Z')
+			return NOT_DECODED;
+
+		final int year = digits(text, offset, 4);
+		final int month = digits(text, offset + 5, 2);
+		final int day = digits(text, offset + 8, 2);
+		final int hour = digits(text, offset + 11, 2);
+		final int minute = digits(text, offset + 14, 2);
+		final int second = digits(text, offset + 17, 2);
+		final int milli = digits(text, offset + 20, 3);
+
+		// any non-digit gives a negative value
+		if ((year | month | day | hour | minute | second | milli) < 0)
+			return NOT_DECODED;
+
+		if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour > 23 || minute > 59
+				|| second > 59)
+			return NOT_DECODED;
+
+		final long millisOfDay = ((hour * 60L + minute) * 60L + second) * 1000L + milli;
+
+		return toEpochDay(year, month, day) * MILLIS_PER_DAY + millisOfDay;
+	}
+
+	public static long toEpochDay(final long epochMilli) {
+		return Math.floorDiv(epochMilli, MILLIS_PER_DAY);
+	}
+
+	public static long toNanoOfDay(final long epochMilli) {
+		return Math.floorMod(epochMilli, MILLIS_PER_DAY) * 1_000_000L;
+	}
+
+	/**
+	 * General parser for any other layout. Same as the JSR-310 module: a 'Z'
+	 * suffix is read as an instant in UTC, anything else as an ISO local date
+	 * time.
+	 *
+	 * @param text
+	 * @return
+	 * @throws java.time.format.DateTimeParseException
+	 */
+	public static LocalDateTime parse(final String text) {
+		final String trimmed = text.trim();
+		if (trimmed.endsWith("Z"))
+			return LocalDateTime.ofInstant(Instant.parse(trimmed), ZoneOffset.UTC);
+		return LocalDateTime.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+	}
+
+	/**
+	 * @return the value of the digits, or a negative value if any character is
+	 *         not a digit
+	 */
+	private static int digits(final char[] text, final int offset, final int count) {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			final int digit = text[i] - '0';
+			if (digit < 0 || digit > 9)
+				return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static boolean isLeapYear(final long year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int lengthOfMonth(final int year, final int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Same as {@link LocalDate#toEpochDay()}, for years from 0 to 9999
+	 */
+	private static long toEpochDay(final long year, final long month, final long day) {
+		long total = 365 * year;
+		total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+		total += (367 * month - 362) / 12;
+		total += day - 1;
+		if (month > 2) {
+			total--;
+			if (!isLeapYear(year)) {
+				total--;
+			}
+		}
+		return total - DAYS_0000_TO_1970;
+	}
+
+	private static int hash(final char[] text, final int offset, final int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + text[i];
+		}
+		// spread the high bits, most of the variation is near the start
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Entry {
+		private final char[] text;
+		private final LocalDateTime dateTime;
+
+		private Entry(final char[] text, final int offset, final int length, final LocalDateTime dateTime) {
+			this.text = new char[length];
+			System.arraycopy(text, offset, this.text, 0, length);
+			this.dateTime = dateTime;
+		}
+
+		private boolean matches(final char[] other, final int offset) {
+			for (int i = 0; i < text.length; i++) {
+				if (text[i] != other[offset + i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+}
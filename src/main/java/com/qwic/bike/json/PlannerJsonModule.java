@@ -0,0 +1,21 @@
+package com.qwic.bike.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Registers the fast {@link ProductionRunDeserializer}.
+ * <p>
+ * The JSR-310 module must also be registered, it is used for timestamps that
+ * are not in the fixed layout.
+ */
+public class PlannerJsonModule extends SimpleModule {
+
+	private static final long serialVersionUID = -2795398140424829785L;
+
+	public PlannerJsonModule() {
+		super(PlannerJsonModule.class.getSimpleName());
+		addDeserializer(ProductionRun.class, new ProductionRunDeserializer());
+	}
+
+}
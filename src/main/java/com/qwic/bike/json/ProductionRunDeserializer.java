@@ -0,0 +1,88 @@
+package com.qwic.bike.json;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Deserializer for {@link ProductionRun}, with a fast path for
+ * <code>startingDay</code>.
+ * <p>
+ * Timestamps in the fixed layout <code>yyyy-MM-ddTHH:mm:ss.SSSZ</code> are
+ * decoded from the parser's raw characters by {@link IsoDateTimeDecoder},
+ * without creating a string. Any other layout falls back to the general
+ * {@link LocalDateTime} deserializer registered on the mapper.
+ */
+public class ProductionRunDeserializer extends StdDeserializer<ProductionRun> {
+
+	private static final long serialVersionUID = 4049271573621180457L;
+
+	private static final String STARTING_DAY = "startingDay";
+	private static final String DURATION = "duration";
+	private static final String QUANTITY = "quantity";
+
+	private final transient IsoDateTimeDecoder decoder;
+
+	public ProductionRunDeserializer() {
+		this(new IsoDateTimeDecoder());
+	}
+
+	public ProductionRunDeserializer(final IsoDateTimeDecoder decoder) {
+		super(ProductionRun.class);
+		this.decoder = decoder;
+	}
+
+	@Override
+	public ProductionRun deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+		JsonToken token = p.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = p.nextToken();
+		}
+		if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+			return (ProductionRun) ctxt.handleUnexpectedToken(ProductionRun.class, p);
+		}
+
+		LocalDateTime startDateTime = null;
+		long durationDays = 0;
+		// runs without a quantity assemble 1 bike
+		long quantity = 1;
+
+		for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+
+			if (STARTING_DAY.equals(field)) {
+				startDateTime = deserializeStartingDay(p, ctxt);
+			} else if (DURATION.equals(field)) {
+				durationDays = _parseLongPrimitive(p, ctxt);
+			} else if (QUANTITY.equals(field)) {
+				quantity = _parseLongPrimitive(p, ctxt);
+			} else {
+				// fails, or skips the value, depending on the mapper's configuration
+				handleUnknownProperty(p, ctxt, ProductionRun.class, field);
+			}
+		}
+
+		return new ProductionRun(startDateTime, durationDays, quantity);
+	}
+
+	private LocalDateTime deserializeStartingDay(final JsonParser p, final DeserializationContext ctxt)
+			throws IOException {
+		if (p.hasToken(JsonToken.VALUE_STRING)) {
+			final LocalDateTime decoded = decoder.decode(p.getTextCharacters(), p.getTextOffset(),
+					p.getTextLength());
+			if (decoded != null)
+				return decoded;
+		} else if (p.hasToken(JsonToken.VALUE_NULL)) {
+			return null;
+		}
+		// not the fixed layout, use the general deserializer
+		return ctxt.readValue(p, LocalDateTime.class);
+	}
+
+}
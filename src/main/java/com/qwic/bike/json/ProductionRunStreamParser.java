@@ -0,0 +1,170 @@
+package com.qwic.bike.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.qwic.bike.planner.RunColumns;
+
+/**
+ * Reads a JSON list of production runs token by token, straight into
+ * {@link RunColumns}.
+ * <p>
+ * No {@link com.qwic.bike.model.ProductionRun} objects are created, only the
+ * <code>startingDay</code>, <code>duration</code> and optional
+ * <code>quantity</code> of each element are kept in primitive columns.
+ * Timestamps in the fixed layout are decoded by {@link IsoDateTimeDecoder}
+ * without creating a string.
+ * <p>
+ * Any malformed element is rejected with a {@link JsonMappingException} that
+ * gives the element's index and its location in the input.
+ */
+public class ProductionRunStreamParser {
+
+	private static final String STARTING_DAY = "startingDay";
+	private static final String DURATION = "duration";
+	private static final String QUANTITY = "quantity";
+
+	private final JsonFactory factory;
+
+	public ProductionRunStreamParser(final JsonFactory factory) {
+		this.factory = factory;
+	}
+
+	public RunColumns parse(final String json) throws IOException {
+		try (JsonParser parser = factory.createParser(json)) {
+			return parse(parser);
+		}
+	}
+
+	public RunColumns parse(final byte[] json) throws IOException {
+		try (JsonParser parser = factory.createParser(json)) {
+			return parse(parser);
+		}
+	}
+
+	/**
+	 * The stream is read until the end of the list, and is not closed.
+	 *
+	 * @param json
+	 * @return
+	 * @throws IOException
+	 */
+	public RunColumns parse(final InputStream json) throws IOException {
+		try (JsonParser parser = factory.createParser(json)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			return parse(parser);
+		}
+	}
+
+	private RunColumns parse(final JsonParser parser) throws IOException {
+		final RunColumns.Builder builder = new RunColumns.Builder();
+
+		try {
+			if (parser.nextToken() != JsonToken.START_ARRAY)
+				throw JsonMappingException.from(parser, "Expected a JSON list of production runs");
+
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token != JsonToken.START_OBJECT)
+					throw elementException(parser, builder.size(), "expected an object, not " + token);
+				parseElement(parser, builder);
+			}
+		} catch (JsonParseException e) {
+			// malformed json, e.g. a missing brace. Report which element it was in.
+			throw JsonMappingException.from(parser,
+					"Element " + builder.size() + ": " + e.getOriginalMessage(), e);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Read one element, the parser is positioned on its start object token.
+	 */
+	private void parseElement(final JsonParser parser, final RunColumns.Builder builder) throws IOException {
+		boolean hasStart = false;
+		long startDay = 0;
+		long startNanoOfDay = 0;
+		long durationDays = 0;
+		// runs without a quantity assemble 1 bike
+		long quantity = 1;
+
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+			if (token != JsonToken.FIELD_NAME)
+				throw elementException(parser, builder.size(), "expected a field, not " + token);
+
+			final String field = parser.getCurrentName();
+			token = parser.nextToken();
+
+			if (STARTING_DAY.equals(field)) {
+				if (token != JsonToken.VALUE_STRING)
+					throw elementException(parser, builder.size(), "'" + STARTING_DAY + "' must be a string");
+				// fixed layout, decoded from the raw characters
+				final long epochMilli = IsoDateTimeDecoder.decodeEpochMilli(parser.getTextCharacters(),
+						parser.getTextOffset(), parser.getTextLength());
+				if (epochMilli != IsoDateTimeDecoder.NOT_DECODED) {
+					startDay = IsoDateTimeDecoder.toEpochDay(epochMilli);
+					startNanoOfDay = IsoDateTimeDecoder.toNanoOfDay(epochMilli);
+				} else {
+					final LocalDateTime startDateTime = parseStartingDay(parser, builder.size());
+					startDay = startDateTime.toLocalDate().toEpochDay();
+					startNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+				}
+				hasStart = true;
+			} else if (DURATION.equals(field)) {
+				durationDays = parseLong(parser, builder.size(), token, DURATION);
+			} else if (QUANTITY.equals(field)) {
+				quantity = parseLong(parser, builder.size(), token, QUANTITY);
+			} else {
+				throw elementException(parser, builder.size(), "unrecognized field '" + field + "'");
+			}
+		}
+
+		if (!hasStart)
+			throw elementException(parser, builder.size(), "missing '" + STARTING_DAY + "'");
+
+		builder.add(startDay, startNanoOfDay, durationDays, quantity);
+	}
+
+	/**
+	 * General parser, for timestamps that are not in the fixed layout
+	 */
+	private LocalDateTime parseStartingDay(final JsonParser parser, final int element) throws IOException {
+		try {
+			return IsoDateTimeDecoder.parse(parser.getText());
+		} catch (DateTimeParseException e) {
+			throw elementException(parser, element, "cannot parse '" + STARTING_DAY + "' " + parser.getText());
+		}
+	}
+
+	private long parseLong(final JsonParser parser, final int element, final JsonToken token, final String field)
+			throws IOException {
+		switch (token) {
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return parser.getLongValue();
+		case VALUE_STRING:
+			try {
+				return Long.parseLong(parser.getText().trim());
+			} catch (NumberFormatException e) {
+				throw elementException(parser, element, "cannot parse '" + field + "' " + parser.getText());
+			}
+		default:
+			throw elementException(parser, element, "'" + field + "' must be a number");
+		}
+	}
+
+	private static JsonMappingException elementException(final JsonParser parser, final int element,
+			final String message) {
+		return JsonMappingException.from(parser, "Element " + element + ": " + message);
+	}
+
+}
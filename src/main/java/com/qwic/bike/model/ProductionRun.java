@@ -3,18 +3,47 @@ package com.qwic.bike.model;
 import java.time.LocalDateTime;
 import java.util.Comparator;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class ProductionRun implements Comparable<ProductionRun> {
+/**
+ * A production run, immutable. The end and the epoch days are computed once,
+ * so sorting and hashing runs does not allocate.
+ */
+public final class ProductionRun implements Comparable<ProductionRun> {
 
 	/**
 	 * JSON input format: yyyy-MM-ddTHH:mm:ss.SSSz
 	 */
 	@JsonProperty("startingDay")
-	private LocalDateTime startDateTime;
+	private final LocalDateTime startDateTime;
 
 	@JsonProperty("duration")
-	private long durationDays;
+	private final long durationDays;
+
+	/**
+	 * Bikes assembled by this run, optional. Default: 1
+	 */
+	@JsonProperty("quantity")
+	private final long quantity;
+
+	/**
+	 * Start plus duration minus 1 day, null if the start is missing
+	 */
+	private final LocalDateTime endDateTime;
+
+	/**
+	 * Epoch days of the start and of the (inclusive) end, 0 if the start is
+	 * missing
+	 */
+	private final long startDay;
+	private final long endDay;
+
+	/**
+	 * Time of day of both the start and the end, 0 if the start is missing
+	 */
+	private final long startNanoOfDay;
 
 	public static final Comparator<ProductionRun> COMPARATOR = new Comparator<ProductionRun>() {
 		@Override
@@ -29,32 +58,64 @@ public class ProductionRun implements Comparable<ProductionRun> {
 				return O1_BEFORE;
 			if (o2 == null)
 				return O1_AFTER;
-			// sort by end time, earliest end time first
-			if (o1.getEndDateTime().isBefore(o2.getEndDateTime()))
-				return O1_BEFORE;
-			if (o2.getEndDateTime().isBefore(o1.getEndDateTime()))
-				return O1_AFTER;
+			// sort by end time, earliest end time first. The end has the time
+			// of day of the start.
+			if (o1.endDay != o2.endDay)
+				return o1.endDay < o2.endDay ? O1_BEFORE : O1_AFTER;
+			if (o1.startNanoOfDay != o2.startNanoOfDay)
+				return o1.startNanoOfDay < o2.startNanoOfDay ? O1_BEFORE : O1_AFTER;
 
 			// sort by start time, earliest first
-			if (o1.getStartDateTime().isBefore(o2.getStartDateTime()))
-				return O1_BEFORE;
-			if (o2.getStartDateTime().isBefore(o1.getStartDateTime()))
-				return O1_AFTER;
+			if (o1.startDay != o2.startDay)
+				return o1.startDay < o2.startDay ? O1_BEFORE : O1_AFTER;
+
+			// sort by quantity, smallest first
+			if (o1.quantity != o2.quantity)
+				return o1.quantity < o2.quantity ? O1_BEFORE : O1_AFTER;
 
-			// all comparisons have yielded equality
-			// verify that compareTo is consistent with equals (optional)
-			assert o1.equals(o2) : "compareTo inconsistent with equals.";
+			// a run without start looks like one starting on 1970-01-01
+			if ((o1.startDateTime == null) != (o2.startDateTime == null))
+				return o1.startDateTime == null ? O1_BEFORE : O1_AFTER;
 
+			// equal start, duration and quantity, consistent with equals
 			return EQUAL;
 		}
 	};
 
-	public ProductionRun() {
+	public ProductionRun(LocalDateTime startDateTime, long durationDays) {
+		this(startDateTime, durationDays, 1);
 	}
 
-	public ProductionRun(LocalDateTime startDateTime, long durationDays) {
+	public ProductionRun(LocalDateTime startDateTime, long durationDays, long quantity) {
 		this.startDateTime = startDateTime;
 		this.durationDays = durationDays;
+		this.quantity = quantity;
+		if (startDateTime == null) {
+			this.endDateTime = null;
+			this.startDay = 0;
+			this.startNanoOfDay = 0;
+		} else {
+			this.endDateTime = startDateTime.plusDays(durationDays - 1);
+			this.startDay = startDateTime.toLocalDate().toEpochDay();
+			this.startNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+		}
+		// end day is inclusive, a run of 1 day ends on the day it starts
+		this.endDay = startDay + durationDays - 1;
+	}
+
+	/**
+	 * Creator for data binding, the quantity is optional
+	 *
+	 * @param startDateTime
+	 * @param durationDays
+	 * @param quantity
+	 *            null for 1 bike
+	 * @return
+	 */
+	@JsonCreator
+	public static ProductionRun of(@JsonProperty("startingDay") LocalDateTime startDateTime,
+			@JsonProperty("duration") long durationDays, @JsonProperty("quantity") Long quantity) {
+		return new ProductionRun(startDateTime, durationDays, quantity == null ? 1 : quantity);
 	}
 
 	public LocalDateTime getStartDateTime() {
@@ -62,19 +123,30 @@ public class ProductionRun implements Comparable<ProductionRun> {
 	}
 
 	public LocalDateTime getEndDateTime() {
-		return startDateTime.plusDays(durationDays - 1);
-	}
-
-	public void setStartDateTime(LocalDateTime startDateTime) {
-		this.startDateTime = startDateTime;
+		return endDateTime;
 	}
 
 	public long getDurationDays() {
 		return durationDays;
 	}
 
-	public void setDurationDays(long durationDays) {
-		this.durationDays = durationDays;
+	public long getQuantity() {
+		return quantity;
+	}
+
+	@JsonIgnore
+	public long getStartDay() {
+		return startDay;
+	}
+
+	@JsonIgnore
+	public long getEndDay() {
+		return endDay;
+	}
+
+	@JsonIgnore
+	public long getStartNanoOfDay() {
+		return startNanoOfDay;
 	}
 
 	@Override
@@ -82,7 +154,10 @@ public class ProductionRun implements Comparable<ProductionRun> {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + (int) (durationDays ^ (durationDays >>> 32));
-		result = prime * result + ((startDateTime == null) ? 0 : startDateTime.hashCode());
+		result = prime * result + (int) (quantity ^ (quantity >>> 32));
+		result = prime * result + (startDateTime == null ? 0 : 1);
+		result = prime * result + (int) (startDay ^ (startDay >>> 32));
+		result = prime * result + (int) (startNanoOfDay ^ (startNanoOfDay >>> 32));
 		return result;
 	}
 
@@ -97,10 +172,13 @@ public class ProductionRun implements Comparable<ProductionRun> {
 		ProductionRun other = (ProductionRun) obj;
 		if (durationDays != other.durationDays)
 			return false;
-		if (startDateTime == null) {
-			if (other.startDateTime != null)
-				return false;
-		} else if (!startDateTime.equals(other.startDateTime))
+		if (quantity != other.quantity)
+			return false;
+		if ((startDateTime == null) != (other.startDateTime == null))
+			return false;
+		if (startDay != other.startDay)
+			return false;
+		if (startNanoOfDay != other.startNanoOfDay)
 			return false;
 		return true;
 	}
@@ -112,8 +190,8 @@ public class ProductionRun implements Comparable<ProductionRun> {
 
 	@Override
 	public String toString() {
-		return "ProductionRun [startDateTime=" + startDateTime + ", durationDays=" + durationDays
-				+ ", getEndDateTime()=" + getEndDateTime() + "]";
+		return "ProductionRun [startDateTime=" + startDateTime + ", durationDays=" + durationDays + ", quantity="
+				+ quantity + ", getEndDateTime()=" + getEndDateTime() + "]";
 	}
 
 }
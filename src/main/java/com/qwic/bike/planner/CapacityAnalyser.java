@@ -0,0 +1,99 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Measures how busy the assembly lines would be if every valid run was
+ * accepted, in O(n log n).
+ * <p>
+ * The start days and the days after each end are sorted separately, then
+ * swept together in day order. Each start adds a run to the line occupancy,
+ * each end removes one. Runs clash if they share a day, so the most runs on
+ * any day is also the fewest lines that fit every run.
+ */
+public abstract class CapacityAnalyser {
+
+	/**
+	 * @param runs
+	 * @param currentDateTime
+	 *            runs starting on or before this are removed
+	 * @param maxRunDuration
+	 * @return
+	 */
+	public static CapacityReport analyse(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+
+		final int[] validRuns = ColumnarPlanner.removeInvalidRuns(runs, currentDateTime, maxRunDuration);
+		final int n = validRuns.length;
+
+		final long[] starts = new long[n];
+		// the first day each run no longer uses a line
+		final long[] ends = new long[n];
+		for (int i = 0; i < n; i++) {
+			starts[i] = runs.startDays[validRuns[i]];
+			ends[i] = runs.endDays[validRuns[i]] + 1;
+		}
+		ColumnarPlanner.checkCancelled();
+
+		Arrays.sort(starts);
+		Arrays.sort(ends);
+		ColumnarPlanner.checkCancelled();
+
+		// the occupancy only changes on a start or end, so there are at most 2n
+		// segments of days
+		final long[] segmentDays = new long[2 * n];
+		final int[] segmentOccupancy = new int[2 * n];
+		int segmentCount = 0;
+
+		int occupancy = 0;
+		int peak = 0;
+		long peakDay = 0;
+
+		int s = 0;
+		int e = 0;
+		while (s < n) {
+			final long day = Math.min(starts[s], ends[e]);
+			while (s < n && starts[s] == day) {
+				occupancy++;
+				s++;
+			}
+			while (e < n && ends[e] == day) {
+				occupancy--;
+				e++;
+			}
+
+			// a run ending as another starts leaves the occupancy unchanged
+			if (segmentCount == 0 || segmentOccupancy[segmentCount - 1] != occupancy) {
+				segmentDays[segmentCount] = day;
+				segmentOccupancy[segmentCount] = occupancy;
+				segmentCount++;
+			}
+
+			if (occupancy > peak) {
+				peak = occupancy;
+				peakDay = day;
+			}
+		}
+
+		// the remaining ends only lower the occupancy, the last one closes the horizon
+		while (e < n) {
+			final long day = ends[e];
+			while (e < n && ends[e] == day) {
+				occupancy--;
+				e++;
+			}
+			if (e < n) {
+				segmentDays[segmentCount] = day;
+				segmentOccupancy[segmentCount] = occupancy;
+				segmentCount++;
+			}
+		}
+
+		final long horizonEnd = n == 0 ? 0 : ends[n - 1] - 1;
+
+		return new CapacityReport(n, peak, peakDay, Arrays.copyOf(segmentDays, segmentCount),
+				Arrays.copyOf(segmentOccupancy, segmentCount), horizonEnd);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDate;
+
+/**
+ * The result of {@link CapacityAnalyser#analyse}.
+ * <p>
+ * The histogram is kept as segments of days with the same occupancy. Segment
+ * <code>i</code> runs from its first day to the day before the next segment
+ * starts, the last segment ends on the last day any run ends.
+ */
+public class CapacityReport {
+
+	private final int validCount;
+	private final int peakDepth;
+	private final long peakDay;
+	/**
+	 * First day of each segment, as an epoch day
+	 */
+	private final long[] segmentDays;
+	/**
+	 * Runs on each day of each segment
+	 */
+	private final int[] segmentOccupancy;
+	private final long horizonEnd;
+
+	public CapacityReport(final int validCount, final int peakDepth, final long peakDay, final long[] segmentDays,
+			final int[] segmentOccupancy, final long horizonEnd) {
+		this.validCount = validCount;
+		this.peakDepth = peakDepth;
+		this.peakDay = peakDay;
+		this.segmentDays = segmentDays;
+		this.segmentOccupancy = segmentOccupancy;
+		this.horizonEnd = horizonEnd;
+	}
+
+	public int getValidCount() {
+		return validCount;
+	}
+
+	/**
+	 * @return the most runs on any day, 0 if there are no runs
+	 */
+	public int getPeakDepth() {
+		return peakDepth;
+	}
+
+	/**
+	 * @return the first day with the most runs, null if there are no runs
+	 */
+	public LocalDate getPeakDay() {
+		return validCount == 0 ? null : LocalDate.ofEpochDay(peakDay);
+	}
+
+	/**
+	 * Runs clash if they share a day, so the most runs on any day fit on this
+	 * many lines
+	 * 
+	 * @return the fewest lines that every run fits on
+	 */
+	public int getMinimumLines() {
+		return peakDepth;
+	}
+
+	public int getSegmentCount() {
+		return segmentDays.length;
+	}
+
+	public LocalDate getSegmentFrom(final int segment) {
+		return LocalDate.ofEpochDay(segmentDays[segment]);
+	}
+
+	public LocalDate getSegmentTo(final int segment) {
+		return LocalDate.ofEpochDay(segment + 1 < segmentDays.length ? segmentDays[segment + 1] - 1 : horizonEnd);
+	}
+
+	public int getSegmentOccupancy(final int segment) {
+		return segmentOccupancy[segment];
+	}
+
+}
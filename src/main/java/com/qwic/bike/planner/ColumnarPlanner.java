@@ -0,0 +1,498 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import com.qwic.bike.util.IndexSortUtils;
+
+/**
+ * Planning stages that work on {@link RunColumns}.
+ * <p>
+ * Runs are referred to by their index in the columns. Each stage takes and
+ * returns arrays of indices, so no objects are created per run.
+ * <p>
+ * Planning stops with a {@link CancellationException} if the planning thread
+ * is interrupted. It is checked between stages, and between groups while
+ * solving.
+ */
+public abstract class ColumnarPlanner {
+
+	/**
+	 * The stages that {@link #totalNonClashingRuns} runs. It neither presolves
+	 * nor groups.
+	 */
+	public static final Set<PlanStage> COUNT_STAGES = Collections
+			.unmodifiableSet(EnumSet.of(PlanStage.FILTER, PlanStage.SORT, PlanStage.SOLVE));
+
+	/**
+	 * Get the maximum amount of non-clashing runs.
+	 *
+	 * Runs with start dates before or equal to currentDateTime are removed and
+	 * not processed.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param strategy
+	 *            solves each group of clashing runs
+	 * @return
+	 */
+	public static PlanResult plan(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final SchedulingStrategy strategy) {
+		return plan(runs, currentDateTime, maxRunDuration, strategy, null);
+	}
+
+	/**
+	 * Get the maximum amount of non-clashing runs, solving the groups of clashing
+	 * runs in parallel.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param strategy
+	 *            solves each group of clashing runs
+	 * @param parallelSolver
+	 *            if null, groups are solved one after another
+	 * @return
+	 */
+	public static PlanResult plan(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final SchedulingStrategy strategy, final ParallelGroupSolver parallelSolver) {
+		return plan(runs, currentDateTime, maxRunDuration, strategy, parallelSolver, false);
+	}
+
+	/**
+	 * Get the maximum amount of non-clashing runs, optionally presolving the runs
+	 * first.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param strategy
+	 *            solves each group of clashing runs
+	 * @param parallelSolver
+	 *            if null, groups are solved one after another
+	 * @param presolve
+	 *            remove duplicate runs and runs that contain another run, see
+	 *            {@link #presolve(RunColumns, int[])}. Ignored for weighted
+	 *            strategies.
+	 * @return
+	 */
+	public static PlanResult plan(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final SchedulingStrategy strategy, final ParallelGroupSolver parallelSolver,
+			final boolean presolve) {
+		return plan(runs, currentDateTime, maxRunDuration, strategy, parallelSolver, presolve, false);
+	}
+
+	/**
+	 * Get the maximum amount of non-clashing runs, and optionally the selected run
+	 * that blocks each rejected run, if any.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param strategy
+	 *            solves each group of clashing runs
+	 * @param parallelSolver
+	 *            if null, groups are solved one after another
+	 * @param presolve
+	 *            remove duplicate runs and runs that contain another run, see
+	 *            {@link #presolve(RunColumns, int[])}. Ignored for weighted
+	 *            strategies, and when explaining.
+	 * @param explain
+	 *            find the blocking run of each rejected run, while solving
+	 * @return
+	 */
+	public static PlanResult plan(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final SchedulingStrategy strategy, final ParallelGroupSolver parallelSolver,
+			final boolean presolve, final boolean explain) {
+
+		final long[] stageNanos = new long[PlanStage.values().length];
+		long stageStart = System.nanoTime();
+
+		// remove invalid runs
+		final int[] validRuns = removeInvalidRuns(runs, currentDateTime, maxRunDuration);
+		stageStart = endStage(stageNanos, PlanStage.FILTER, stageStart);
+		checkCancelled();
+
+		// sort by end date, once
+		sortByEndDate(runs, validRuns);
+		stageStart = endStage(stageNanos, PlanStage.SORT, stageStart);
+		checkCancelled();
+
+		// a heavy run may be worth more than the runs it contains. Presolved runs
+		// aren't in a group, so they couldn't be explained.
+		final boolean presolved = presolve && !strategy.isWeighted() && !explain;
+		final int[] sortedRuns = presolved ? presolve(runs, validRuns) : validRuns;
+		stageStart = endStage(stageNanos, PlanStage.PRESOLVE, stageStart);
+		checkCancelled();
+
+		// get groups of clashing runs
+		final int[] groupOffsets = getClashGroups(runs, sortedRuns);
+		stageStart = endStage(stageNanos, PlanStage.GROUP, stageStart);
+		checkCancelled();
+
+		// for each group of clashing runs, remove least number of runs until no clash
+		final int[] blockers = explain ? new int[sortedRuns.length] : null;
+		final int[] selectedRuns;
+		if (parallelSolver == null) {
+			selectedRuns = getNonClashingRunsFromClashGroups(runs, sortedRuns, groupOffsets, strategy, blockers);
+		} else {
+			selectedRuns = parallelSolver.getNonClashingRunsFromClashGroups(runs, sortedRuns, groupOffsets, strategy,
+					blockers);
+		}
+		endStage(stageNanos, PlanStage.SOLVE, stageStart);
+
+		if (!explain)
+			return new PlanResult(runs, validRuns.length, sortedRuns, groupOffsets, selectedRuns, stageNanos,
+					presolved);
+
+		// compact every run that wasn't selected into parallel arrays, in end date
+		// order. A blocker is -1 for selected runs, but also for runs the weighted
+		// strategy skips without a clash, so selected runs are marked instead.
+		final boolean[] isSelected = new boolean[runs.size()];
+		for (final int run : selectedRuns) {
+			isSelected[run] = true;
+		}
+		final int rejectedCount = sortedRuns.length - selectedRuns.length;
+		final int[] rejectedRuns = new int[rejectedCount];
+		final int[] blockingRuns = new int[rejectedCount];
+		for (int i = 0, r = 0; i < sortedRuns.length; i++) {
+			if (!isSelected[sortedRuns[i]]) {
+				rejectedRuns[r] = sortedRuns[i];
+				blockingRuns[r++] = blockers[i];
+			}
+		}
+
+		return new PlanResult(runs, validRuns.length, sortedRuns, groupOffsets, selectedRuns, stageNanos,
+				presolved, rejectedRuns, blockingRuns);
+	}
+
+	/**
+	 * Count the maximum amount of non-clashing runs, without selecting them.
+	 * <p>
+	 * After sorting, one greedy pass runs over all groups at once. The first run
+	 * of each group starts after every earlier run ends, so the runs are the same
+	 * as solving each group with {@link GreedyEndDateStrategy}, and so are the
+	 * bikes.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @return
+	 */
+	public static int countNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+		return totalNonClashingRuns(runs, currentDateTime, maxRunDuration).getRuns();
+	}
+
+	/**
+	 * Same as {@link #countNonClashingRuns(RunColumns, LocalDateTime, long)}, and
+	 * also sum the bikes of the counted runs.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @return
+	 */
+	public static PlanTotals totalNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+		return totalNonClashingRuns(runs, currentDateTime, maxRunDuration, new long[PlanStage.values().length]);
+	}
+
+	/**
+	 * Same as {@link #totalNonClashingRuns(RunColumns, LocalDateTime, long)}, and
+	 * also time the {@link #COUNT_STAGES}.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param stageNanos
+	 *            filled with the nanoseconds of each stage, by
+	 *            {@link PlanStage#ordinal()}
+	 * @return
+	 */
+	public static PlanTotals totalNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final long[] stageNanos) {
+		long stageStart = System.nanoTime();
+
+		final int[] validRuns = removeInvalidRuns(runs, currentDateTime, maxRunDuration);
+		checkCancelled();
+		stageStart = endStage(stageNanos, PlanStage.FILTER, stageStart);
+
+		sortByEndDate(runs, validRuns);
+		checkCancelled();
+		stageStart = endStage(stageNanos, PlanStage.SORT, stageStart);
+
+		int count = 0;
+		long bikes = 0;
+		long lastSelectedEnd = Long.MIN_VALUE;
+
+		for (int i = 0; i < validRuns.length; i++) {
+			final int run = validRuns[i];
+			// only the last run that ends on each day, as GreedyEndDateStrategy
+			if (i + 1 < validRuns.length && runs.endDays[validRuns[i + 1]] == runs.endDays[run])
+				continue;
+
+			if (runs.startDays[run] > lastSelectedEnd) {
+				count++;
+				bikes += runs.quantities[run];
+				lastSelectedEnd = runs.endDays[run];
+			}
+		}
+		endStage(stageNanos, PlanStage.SOLVE, stageStart);
+
+		return new PlanTotals(count, bikes);
+	}
+
+	/**
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @return the indices of the valid runs, in input order
+	 */
+	public static int[] removeInvalidRuns(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+
+		final long currentDay = currentDateTime.toLocalDate().toEpochDay();
+		final long currentNanoOfDay = currentDateTime.toLocalTime().toNanoOfDay();
+
+		final int[] validRuns = new int[runs.size()];
+		int count = 0;
+
+		for (int i = 0; i < runs.size(); i++) {
+			if (isRunValid(runs, i, currentDay, currentNanoOfDay, maxRunDuration)) {
+				validRuns[count++] = i;
+			}
+		}
+
+		return count == validRuns.length ? validRuns : Arrays.copyOf(validRuns, count);
+	}
+
+	static boolean isRunValid(final RunColumns runs, final int i, final long currentDay,
+			final long currentNanoOfDay, final long maxRunDuration) {
+		final long startDay = runs.startDays[i];
+		final long durationDays = runs.getDurationDays(i);
+		return
+		// remove runs that are less than or equal to the current date time
+		(startDay > currentDay || startDay == currentDay && runs.startNanosOfDay[i] > currentNanoOfDay)
+				// remove runs that have invalid duration
+				&& !(durationDays <= 0 || durationDays >= maxRunDuration);
+	}
+
+	/**
+	 * Sort indices by end day, earliest first. Runs that end on the same day are
+	 * sorted by start day, earliest first.
+	 *
+	 * @param runs
+	 * @param indices
+	 *            sorted in place
+	 */
+	public static void sortByEndDate(final RunColumns runs, final int[] indices) {
+		IndexSortUtils.sort(indices, runs.endDays, runs.startDays);
+	}
+
+	/**
+	 * Given indices sorted by end date, remove duplicate runs and runs that
+	 * contain another run, in one pass. Only for unweighted planning: a run that
+	 * contains another can always be swapped for it, so it is never needed.
+	 * <p>
+	 * Of the runs that end on the same day, only the last one, which starts
+	 * latest, can be kept. It is kept if it starts after every kept run, if not
+	 * it contains a kept run. Afterwards both the start and end days of the runs
+	 * are increasing.
+	 * <p>
+	 * Runs are compared by day, so runs on the same days with different start
+	 * times are duplicates.
+	 *
+	 * @param runs
+	 * @param sortedIndices
+	 *            not changed
+	 * @return the kept indices, still sorted by end date. The same array if no
+	 *         runs were removed.
+	 */
+	public static int[] presolve(final RunColumns runs, final int[] sortedIndices) {
+		final int[] kept = new int[sortedIndices.length];
+		int count = 0;
+		long latestKeptStart = Long.MIN_VALUE;
+
+		for (int i = 0; i < sortedIndices.length; i++) {
+			final int run = sortedIndices[i];
+			// the next run ends on the same day, and starts on or after this one
+			if (i + 1 < sortedIndices.length && runs.endDays[sortedIndices[i + 1]] == runs.endDays[run])
+				continue;
+
+			if (runs.startDays[run] > latestKeptStart) {
+				kept[count++] = run;
+				latestKeptStart = runs.startDays[run];
+			}
+		}
+
+		return count == sortedIndices.length ? sortedIndices : Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * Given indices sorted by end date, divide them up into groups of clashing
+	 * runs. No run clashes with a run of another group, so each group can be
+	 * solved on its own.
+	 * <p>
+	 * Groups are not copied, group <code>g</code> is the range
+	 * <code>[groupOffsets[g], groupOffsets[g + 1])</code> of the sorted indices.
+	 * <p>
+	 * For example, if A only clashes with B, and B only clashes with C, and D
+	 * clashes with nothing, and E only clashes with F the groups will be
+	 * <code>[[A, B, C], [D], [E, F]]</code>
+	 * <p>
+	 * A group ends where every later run starts after the latest end so far.
+	 * Runs are sorted by end, so the latest end so far is the previous run's end,
+	 * but a long run further on can still start before it. So the sweep runs
+	 * backwards, keeping the earliest start of the runs after each position.
+	 *
+	 * @param runs
+	 * @param sortedIndices
+	 * @return the group offsets, with one more element than there are groups
+	 */
+	public static int[] getClashGroups(final RunColumns runs, final int[] sortedIndices) {
+
+		final int n = sortedIndices.length;
+		if (n == 0)
+			return new int[] { 0 };
+
+		// there can't be more groups than runs, offsets are written from the end
+		final int[] groupOffsets = new int[n + 1];
+		int position = n;
+		groupOffsets[position] = n;
+
+		long earliestLaterStart = Long.MAX_VALUE;
+
+		for (int i = n - 1; i > 0; i--) {
+			earliestLaterStart = Math.min(earliestLaterStart, runs.startDays[sortedIndices[i]]);
+			// no run from i onwards clashes with run i - 1, or any run before it
+			if (earliestLaterStart > runs.endDays[sortedIndices[i - 1]]) {
+				groupOffsets[--position] = i;
+			}
+		}
+		// open the first group
+		groupOffsets[--position] = 0;
+
+		return Arrays.copyOfRange(groupOffsets, position, n + 1);
+	}
+
+	/**
+	 * @param runs
+	 * @param sortedIndices
+	 * @param groupOffsets
+	 * @param strategy
+	 * @return the indices of the selected runs, sorted by end date
+	 */
+	public static int[] getNonClashingRunsFromClashGroups(final RunColumns runs, final int[] sortedIndices,
+			final int[] groupOffsets, final SchedulingStrategy strategy) {
+		return getNonClashingRunsFromClashGroups(runs, sortedIndices, groupOffsets, strategy, null);
+	}
+
+	/**
+	 * @param runs
+	 * @param sortedIndices
+	 * @param groupOffsets
+	 * @param strategy
+	 * @param blockers
+	 *            if not null, the run that blocks each of sortedIndices is written
+	 *            here, see
+	 *            {@link SchedulingStrategy#selectNonClashingRuns(RunColumns, int[], int, int, int[], int, int[])}
+	 * @return the indices of the selected runs, sorted by end date
+	 */
+	public static int[] getNonClashingRunsFromClashGroups(final RunColumns runs, final int[] sortedIndices,
+			final int[] groupOffsets, final SchedulingStrategy strategy, final int[] blockers) {
+
+		final int[] selected = new int[sortedIndices.length];
+		int count = 0;
+
+		// run through each group of clashes
+		for (int g = 0; g + 1 < groupOffsets.length; g++) {
+			checkCancelled();
+			// for each group, get the largest non-clashing combo
+			if (blockers == null) {
+				count += strategy.selectNonClashingRuns(runs, sortedIndices, groupOffsets[g], groupOffsets[g + 1],
+						selected, count);
+			} else {
+				count += strategy.selectNonClashingRuns(runs, sortedIndices, groupOffsets[g], groupOffsets[g + 1],
+						selected, count, blockers);
+			}
+		}
+
+		return Arrays.copyOf(selected, count);
+	}
+
+	/**
+	 * Find a selected run that clashes with each run of a group. The selected
+	 * runs don't share a day, so sorted by end they are also sorted by start. The
+	 * first one that ends on or after a run's start is the only one that can be
+	 * the run itself, and the first that can clash with it.
+	 *
+	 * @param runs
+	 * @param sortedRuns
+	 * @param from
+	 *            first run of the group, inclusive
+	 * @param to
+	 *            exclusive
+	 * @param selected
+	 *            the selected runs of the group, sorted by end date
+	 * @param offset
+	 *            of the group in selected
+	 * @param count
+	 *            of the group in selected
+	 * @param blockers
+	 *            -1 for selected runs and runs that clash with no selected run
+	 */
+	static void findBlockers(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset, final int count, final int[] blockers) {
+
+		for (int i = from; i < to; i++) {
+			final int run = sortedRuns[i];
+			final long startDay = runs.startDays[run];
+
+			// first selected run that ends on or after the start
+			int low = offset;
+			int high = offset + count;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (runs.endDays[selected[middle]] < startDay) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			if (low == offset + count || selected[low] == run || runs.startDays[selected[low]] > runs.endDays[run]) {
+				blockers[i] = -1;
+			} else {
+				blockers[i] = selected[low];
+			}
+		}
+	}
+
+	/**
+	 * Record the time a stage took
+	 *
+	 * @return the start of the next stage
+	 */
+	private static long endStage(final long[] stageNanos, final PlanStage stage, final long stageStart) {
+		final long stageEnd = System.nanoTime();
+		stageNanos[stage.ordinal()] = stageEnd - stageStart;
+		return stageEnd;
+	}
+
+	/**
+	 * @throws CancellationException
+	 *             if the current thread has been interrupted
+	 */
+	static void checkCancelled() {
+		// the interrupt flag is left set, so the thread's owner can see it
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("Planning was cancelled");
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.qwic.bike.planner;
+
+import java.util.Arrays;
+
+import com.qwic.bike.util.IndexSortUtils;
+
+/**
+ * The free days between the runs of a schedule, to find the earliest day a new
+ * run fits in O(log n).
+ * <p>
+ * The gaps are kept in day order, with a tree of their largest length over
+ * ranges of gaps. The first gap that is long enough after a day is found by
+ * walking down the tree. The days before the first run and after the last run
+ * are gaps without end.
+ */
+public class GapIndex {
+
+	/**
+	 * Length of a gap without end
+	 */
+	private static final long UNBOUNDED = Long.MAX_VALUE;
+
+	/**
+	 * First and last day of each gap, inclusive. Sorted, disjoint.
+	 */
+	private final long[] gapStarts;
+	private final long[] gapEnds;
+
+	/**
+	 * Implicit tree of the longest gap: node 1 is the root, node <code>i</code>
+	 * has children <code>2i</code> and <code>2i + 1</code>, leaf
+	 * <code>leaves + g</code> is gap <code>g</code>
+	 */
+	private final long[] longest;
+
+	private final int leaves;
+
+	private GapIndex(final long[] gapStarts, final long[] gapEnds) {
+		this.gapStarts = gapStarts;
+		this.gapEnds = gapEnds;
+
+		int leaves = 1;
+		while (leaves < gapStarts.length) {
+			leaves <<= 1;
+		}
+		this.leaves = leaves;
+		this.longest = new long[2 * leaves];
+		for (int g = 0; g < gapStarts.length; g++) {
+			longest[leaves + g] = length(g);
+		}
+		for (int node = leaves - 1; node > 0; node--) {
+			longest[node] = Math.max(longest[2 * node], longest[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * Index the gaps between the selected runs of a plan
+	 *
+	 * @param plan
+	 * @return
+	 */
+	public static GapIndex of(final PlanResult plan) {
+		return of(plan.getRuns(), plan.getSelectedRuns());
+	}
+
+	/**
+	 * Index the gaps between runs that don't clash
+	 *
+	 * @param runs
+	 * @param schedule
+	 *            indices of runs that don't share a day, in any order. Not
+	 *            modified.
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if two runs share a day
+	 */
+	public static GapIndex of(final RunColumns runs, final int[] schedule) {
+		final int[] order = schedule.clone();
+		IndexSortUtils.sort(order, runs.startDays, runs.endDays);
+
+		// a gap before each run, and one after the last
+		final long[] gapStarts = new long[order.length + 1];
+		final long[] gapEnds = new long[order.length + 1];
+		int gaps = 0;
+		long free = Long.MIN_VALUE;
+
+		for (int i = 0; i < order.length; i++) {
+			final long startDay = runs.startDays[order[i]];
+			if (startDay < free)
+				throw new IllegalArgumentException("Runs " + order[i - 1] + " and " + order[i] + " share a day");
+			// runs on consecutive days leave no gap
+			if (startDay > free) {
+				gapStarts[gaps] = free;
+				gapEnds[gaps] = startDay - 1;
+				gaps++;
+			}
+			free = runs.endDays[order[i]] + 1;
+		}
+		gapStarts[gaps] = free;
+		gapEnds[gaps] = Long.MAX_VALUE;
+		gaps++;
+
+		return new GapIndex(Arrays.copyOf(gapStarts, gaps), Arrays.copyOf(gapEnds, gaps));
+	}
+
+	/**
+	 * Find the earliest day a run fits, without sharing a day with a run of the
+	 * schedule
+	 *
+	 * @param fromDay
+	 *            epoch day, the earliest start to consider
+	 * @param durationDays
+	 *            at least 1
+	 * @return the earliest start day on or after fromDay
+	 */
+	public long earliestStart(final long fromDay, final long durationDays) {
+		if (durationDays < 1)
+			throw new IllegalArgumentException("Duration must be at least 1 day");
+
+		// the gap that holds fromDay, or the first gap after it. The last gap
+		// never ends, so there always is one.
+		int gap = Arrays.binarySearch(gapEnds, fromDay);
+		if (gap < 0)
+			gap = -gap - 1;
+
+		final long start = Math.max(gapStarts[gap], fromDay);
+		if (gapEnds[gap] == Long.MAX_VALUE || gapEnds[gap] - start >= durationDays - 1)
+			return start;
+
+		return gapStarts[firstLongEnough(gap + 1, durationDays)];
+	}
+
+	/**
+	 * Answer a batch of queries against the same schedule
+	 *
+	 * @param fromDays
+	 * @param durationDays
+	 *            same length as fromDays
+	 * @return the earliest start day of each query
+	 */
+	public long[] earliestStarts(final long[] fromDays, final long[] durationDays) {
+		if (fromDays.length != durationDays.length)
+			throw new IllegalArgumentException("Expected as many durations as days, got " + durationDays.length
+					+ " and " + fromDays.length);
+
+		final long[] starts = new long[fromDays.length];
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] = earliestStart(fromDays[i], durationDays[i]);
+		}
+		return starts;
+	}
+
+	public int getGapCount() {
+		return gapStarts.length;
+	}
+
+	/**
+	 * @return the first gap from <code>from</code> on of at least the length
+	 */
+	private int firstLongEnough(final int from, final long length) {
+		// climb from the first leaf of the range to the next subtree on the
+		// right, until a subtree has a gap that is long enough
+		int node = leaves + from;
+		while (longest[node] < length) {
+			while ((node & 1) == 1) {
+				node >>= 1;
+			}
+			node++;
+		}
+		// then descend into its first long enough gap
+		while (node < leaves) {
+			node = longest[2 * node] >= length ? 2 * node : 2 * node + 1;
+		}
+		return node - leaves;
+	}
+
+	private long length(final int gap) {
+		if (gapStarts[gap] == Long.MIN_VALUE || gapEnds[gap] == Long.MAX_VALUE)
+			return UNBOUNDED;
+		return gapEnds[gap] - gapStarts[gap] + 1;
+	}
+
+}
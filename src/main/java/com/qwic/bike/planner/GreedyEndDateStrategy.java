@@ -0,0 +1,70 @@
+package com.qwic.bike.planner;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Greedy algorithm, O(n) per group. Runs are already sorted by end date,
+ * ascending. Iterate over runs. If a run starts after the end of the last
+ * selected run, then it doesn't clash with any selected run, so select it.
+ * Otherwise the last selected run blocks it.
+ * <p>
+ * Of the runs that end on the same day, only the last is considered. It starts
+ * latest, so it is selected if any of them could be, and it is the run that
+ * {@link ColumnarPlanner#presolve(RunColumns, int[])} keeps. So the same runs
+ * are selected with or without presolve.
+ */
+@Component(GreedyEndDateStrategy.NAME)
+public class GreedyEndDateStrategy implements SchedulingStrategy {
+
+	public static final String NAME = "greedy";
+
+	@Override
+	public int selectNonClashingRuns(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset) {
+		return selectNonClashingRuns(runs, sortedRuns, from, to, selected, offset, null);
+	}
+
+	/**
+	 * The blockers are found in the same pass
+	 */
+	@Override
+	public int selectNonClashingRuns(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset, final int[] blockers) {
+
+		int count = 0;
+		int lastSelected = -1;
+		long lastSelectedEnd = Long.MIN_VALUE;
+
+		for (int i = from; i < to;) {
+			// runs that end on the same day clash, so they are in the same group
+			int last = i;
+			while (last + 1 < to && runs.endDays[sortedRuns[last + 1]] == runs.endDays[sortedRuns[i]]) {
+				last++;
+			}
+
+			final int run = sortedRuns[last];
+			if (runs.startDays[run] > lastSelectedEnd) {
+				selected[offset + count++] = run;
+				lastSelected = run;
+				lastSelectedEnd = runs.endDays[run];
+				if (blockers != null)
+					blockers[last] = -1;
+			} else if (blockers != null) {
+				// it ends on or after the last selected run, and starts before its
+				// end
+				blockers[last] = lastSelected;
+			}
+
+			if (blockers != null) {
+				// the others end on the same day, and start on or before the last
+				for (int j = i; j < last; j++) {
+					blockers[j] = lastSelected;
+				}
+			}
+			i = last + 1;
+		}
+
+		return count;
+	}
+
+}
@@ -0,0 +1,336 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Keeps the maximum amount of non-clashing runs up to date while runs are
+ * added and removed, without planning the whole backlog again.
+ * <p>
+ * All runs, and the selected runs, are kept in {@link TreeSet}s sorted by end
+ * day, then latest start first. The selection is the one the greedy strategy
+ * gives: take each run, in that order, if it starts after the last taken run
+ * ends. So of the runs that end on the same day, the one that starts latest is
+ * taken, as {@link GreedyEndDateStrategy} does.
+ * <p>
+ * Selections of runs that end before a changed run can't change. From the
+ * changed run onwards, the greedy pass is replayed twice at once, with and
+ * without the change, until both have taken a run with the same end day.
+ * After that they take the same runs, so the repair stops. Usually only a few
+ * runs after the change are visited.
+ * <p>
+ * Runs are not removed as time passes, callers remove runs that have started
+ * with {@link #removeRunsStartingUpTo(LocalDateTime)}, or only leave them out
+ * with {@link #getTotalsStartingAfter(LocalDateTime)}. Not thread safe.
+ */
+public class IncrementalPlanner {
+
+	private final NavigableSet<Entry> runs = new TreeSet<>();
+	private final NavigableSet<Entry> selected = new TreeSet<>();
+	/**
+	 * All runs again, sorted by start date time, for removing started runs
+	 */
+	private final NavigableSet<Entry> runsByStart = new TreeSet<>(Entry.BY_START);
+
+	/**
+	 * Bikes assembled by the selected runs
+	 */
+	private long selectedQuantity;
+
+	/**
+	 * Tie breaker, so that equal runs can be added more than once
+	 */
+	private long nextSequence;
+
+	/**
+	 * Runs visited by the last repair
+	 */
+	private int lastRepairSize;
+
+	public IncrementalPlanner() {
+	}
+
+	/**
+	 * @param runs
+	 *            added one by one
+	 */
+	public IncrementalPlanner(final List<ProductionRun> runs) {
+		for (final ProductionRun run : runs) {
+			addRun(run);
+		}
+	}
+
+	/**
+	 * Add a run, and repair the selection from its end day onwards
+	 *
+	 * @param run
+	 *            must have a start date time and a positive duration
+	 */
+	public void addRun(final ProductionRun run) {
+		if (run.getStartDateTime() == null || run.getDurationDays() <= 0)
+			throw new IllegalArgumentException("Not a valid run: " + run);
+
+		final Entry added = new Entry(run, nextSequence++);
+		runs.add(added);
+		runsByStart.add(added);
+
+		final long lastEnd = getLastSelectedEndBefore(added);
+		// without the run, the greedy pass carries on with the same last end
+		final long withoutLastEnd = lastEnd;
+		final long withLastEnd;
+		if (added.startDay > lastEnd) {
+			select(added);
+			withLastEnd = added.endDay;
+		} else {
+			withLastEnd = lastEnd;
+		}
+
+		repair(added, withoutLastEnd, withLastEnd);
+	}
+
+	/**
+	 * Remove one run that is equal to the given run, and repair the selection
+	 * from its end day onwards
+	 *
+	 * @param run
+	 * @return false if there is no equal run
+	 */
+	public boolean removeRun(final ProductionRun run) {
+		final Entry removed = find(run);
+		if (removed == null)
+			return false;
+
+		remove(removed);
+		return true;
+	}
+
+	/**
+	 * Remove every run that starts on or before a date time, as when planning at
+	 * that date time
+	 *
+	 * @param currentDateTime
+	 * @return the number of runs removed
+	 */
+	public int removeRunsStartingUpTo(final LocalDateTime currentDateTime) {
+		int removed = 0;
+		while (!runsByStart.isEmpty() && !runsByStart.first().start.isAfter(currentDateTime)) {
+			remove(runsByStart.first());
+			removed++;
+		}
+		return removed;
+	}
+
+	/**
+	 * Count the runs that start on or before a date time, without removing them
+	 *
+	 * @param currentDateTime
+	 * @return
+	 */
+	public int countRunsStartingUpTo(final LocalDateTime currentDateTime) {
+		int started = 0;
+		for (final Entry entry : runsByStart) {
+			if (entry.start.isAfter(currentDateTime))
+				break;
+			started++;
+		}
+		return started;
+	}
+
+	/**
+	 * The totals as if every run that starts on or before a date time was
+	 * removed, without removing them. Free if no run has started, otherwise one
+	 * greedy pass over all runs.
+	 *
+	 * @param currentDateTime
+	 * @return
+	 */
+	public PlanTotals getTotalsStartingAfter(final LocalDateTime currentDateTime) {
+		if (runsByStart.isEmpty() || runsByStart.first().start.isAfter(currentDateTime))
+			return getTotals();
+
+		int count = 0;
+		long bikes = 0;
+		long lastEnd = Long.MIN_VALUE;
+		for (final Entry entry : runs) {
+			if (entry.startDay > lastEnd && entry.start.isAfter(currentDateTime)) {
+				count++;
+				bikes += entry.run.getQuantity();
+				lastEnd = entry.endDay;
+			}
+		}
+		return new PlanTotals(count, bikes);
+	}
+
+	/**
+	 * @return the number of runs, selected or not
+	 */
+	public int size() {
+		return runs.size();
+	}
+
+	/**
+	 * @return the maximum amount of non-clashing runs
+	 */
+	public int getSelectedCount() {
+		return selected.size();
+	}
+
+	/**
+	 * @return the bikes assembled by the selected runs
+	 */
+	public long getSelectedQuantity() {
+		return selectedQuantity;
+	}
+
+	public PlanTotals getTotals() {
+		return new PlanTotals(getSelectedCount(), getSelectedQuantity());
+	}
+
+	/**
+	 * @return the selected runs, sorted by end date
+	 */
+	public List<ProductionRun> getSelectedRuns() {
+		final List<ProductionRun> selectedRuns = new ArrayList<>(selected.size());
+		for (final Entry entry : selected) {
+			selectedRuns.add(entry.run);
+		}
+		return selectedRuns;
+	}
+
+	/**
+	 * @return the number of runs the last added or removed run caused to be
+	 *         checked again
+	 */
+	public int getLastRepairSize() {
+		return lastRepairSize;
+	}
+
+	/**
+	 * Replay the greedy pass after a changed run. <code>oldLastEnd</code> and
+	 * <code>newLastEnd</code> are the end days of the last run taken up to and
+	 * including the changed run, before and after the change.
+	 */
+	private void repair(final Entry changed, long oldLastEnd, long newLastEnd) {
+		int visited = 0;
+
+		final Iterator<Entry> after = runs.tailSet(changed, false).iterator();
+		while (oldLastEnd != newLastEnd && after.hasNext()) {
+			final Entry entry = after.next();
+			visited++;
+
+			final boolean wasSelected = entry.startDay > oldLastEnd;
+			final boolean isSelected = entry.startDay > newLastEnd;
+
+			assert wasSelected == selected.contains(entry) : "Selection is out of date at " + entry.run;
+
+			if (isSelected && !wasSelected) {
+				select(entry);
+			} else if (wasSelected && !isSelected) {
+				deselect(entry);
+			}
+
+			if (wasSelected) {
+				oldLastEnd = entry.endDay;
+			}
+			if (isSelected) {
+				newLastEnd = entry.endDay;
+			}
+		}
+
+		lastRepairSize = visited;
+	}
+
+	/**
+	 * Remove a run, and repair the selection from its end day onwards
+	 */
+	private void remove(final Entry removed) {
+		final long lastEnd = getLastSelectedEndBefore(removed);
+		final long withLastEnd;
+		if (selected.contains(removed)) {
+			deselect(removed);
+			withLastEnd = removed.endDay;
+		} else {
+			withLastEnd = lastEnd;
+		}
+		runs.remove(removed);
+		runsByStart.remove(removed);
+
+		// "with" is the old selection, which had the removed run
+		repair(removed, withLastEnd, lastEnd);
+	}
+
+	/**
+	 * @return the end day of the last selected run before the entry, or
+	 *         Long.MIN_VALUE if there is none
+	 */
+	private long getLastSelectedEndBefore(final Entry entry) {
+		final Entry previous = selected.lower(entry);
+		return previous == null ? Long.MIN_VALUE : previous.endDay;
+	}
+
+	private Entry find(final ProductionRun run) {
+		if (run.getStartDateTime() == null)
+			return null;
+
+		// the first entry that could be equal, then every entry with the same days
+		final Entry probe = new Entry(run, Long.MAX_VALUE);
+		for (final Entry entry : runs.tailSet(probe, true)) {
+			if (entry.endDay != probe.endDay || entry.startDay != probe.startDay)
+				return null;
+			if (entry.run.equals(run))
+				return entry;
+		}
+		return null;
+	}
+
+	private void select(final Entry entry) {
+		selected.add(entry);
+		selectedQuantity += entry.run.getQuantity();
+	}
+
+	private void deselect(final Entry entry) {
+		selected.remove(entry);
+		selectedQuantity -= entry.run.getQuantity();
+	}
+
+	/**
+	 * A run, sorted by end day, then latest start day first, then last added
+	 * first
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		private static final Comparator<Entry> BY_START = Comparator.<Entry, LocalDateTime>comparing(e -> e.start)
+				.thenComparingLong(e -> e.sequence);
+
+		private final ProductionRun run;
+		private final LocalDateTime start;
+		private final long startDay;
+		private final long endDay;
+		private final long sequence;
+
+		private Entry(final ProductionRun run, final long sequence) {
+			this.run = run;
+			this.start = run.getStartDateTime();
+			this.startDay = run.getStartDay();
+			this.endDay = run.getEndDay();
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(final Entry that) {
+			if (endDay != that.endDay)
+				return Long.compare(endDay, that.endDay);
+			if (startDay != that.startDay)
+				return Long.compare(that.startDay, startDay);
+			return Long.compare(that.sequence, sequence);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.qwic.bike.planner;
+
+/**
+ * The result of {@link MultiLinePlanner#plan}. Selected runs are given as
+ * indices into the original input, sorted by end date, each with the line it
+ * is assigned to.
+ */
+public class LinePlan {
+
+	private final RunColumns runs;
+	private final int lineCount;
+	private final int validCount;
+	private final int[] selectedRuns;
+	/**
+	 * Line of each selected run, from 0
+	 */
+	private final int[] lines;
+
+	public LinePlan(final RunColumns runs, final int lineCount, final int validCount, final int[] selectedRuns,
+			final int[] lines) {
+		this.runs = runs;
+		this.lineCount = lineCount;
+		this.validCount = validCount;
+		this.selectedRuns = selectedRuns;
+		this.lines = lines;
+	}
+
+	public RunColumns getRuns() {
+		return runs;
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	public int getInvalidCount() {
+		return runs.size() - validCount;
+	}
+
+	public int getSelectedCount() {
+		return selectedRuns.length;
+	}
+
+	/**
+	 * @param i
+	 * @return the index of the <code>i</code>th selected run in the input
+	 */
+	public int getSelectedRun(final int i) {
+		return selectedRuns[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the line of the <code>i</code>th selected run, from 0
+	 */
+	public int getLine(final int i) {
+		return lines[i];
+	}
+
+	/**
+	 * @return the bikes assembled by the selected runs, on all lines
+	 */
+	public long getSelectedQuantity() {
+		long quantity = 0;
+		for (final int run : selectedRuns) {
+			quantity += runs.quantities[run];
+		}
+		return quantity;
+	}
+
+	public PlanTotals getTotals() {
+		return new PlanTotals(getSelectedCount(), getSelectedQuantity());
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Plans runs over several identical assembly lines, maximising the number of
+ * runs placed on any line.
+ * <p>
+ * Runs are taken in end date order. Each run is put on the line that became
+ * free latest, of the lines that are free before it starts. Lines are kept in a
+ * {@link TreeMap} by the last day they are busy, so finding the line is
+ * O(log k). If no line is free the run is skipped. With one line this is the
+ * same as {@link GreedyEndDateStrategy}.
+ */
+public abstract class MultiLinePlanner {
+
+	/**
+	 * Check for cancellation every this many runs
+	 */
+	private static final int CANCEL_CHECK_MASK = 0xFFFF;
+
+	/**
+	 * @param runs
+	 * @param currentDateTime
+	 *            runs starting on or before this are removed
+	 * @param maxRunDuration
+	 * @param lineCount
+	 *            number of assembly lines, at least 1
+	 * @return
+	 */
+	public static LinePlan plan(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final int lineCount) {
+
+		if (lineCount < 1)
+			throw new IllegalArgumentException("At least 1 line is needed, not " + lineCount);
+
+		final int[] validRuns = ColumnarPlanner.removeInvalidRuns(runs, currentDateTime, maxRunDuration);
+		ColumnarPlanner.checkCancelled();
+
+		ColumnarPlanner.sortByEndDate(runs, validRuns);
+		ColumnarPlanner.checkCancelled();
+
+		// last busy day -> lines that are free after it
+		final TreeMap<Long, ArrayDeque<Integer>> freeLines = new TreeMap<>();
+		final ArrayDeque<Integer> unusedLines = new ArrayDeque<>(lineCount);
+		for (int line = 0; line < lineCount; line++) {
+			unusedLines.add(line);
+		}
+		freeLines.put(Long.MIN_VALUE, unusedLines);
+
+		final int[] selected = new int[validRuns.length];
+		final int[] lines = new int[validRuns.length];
+		int count = 0;
+
+		for (int i = 0; i < validRuns.length; i++) {
+			if ((i & CANCEL_CHECK_MASK) == 0) {
+				ColumnarPlanner.checkCancelled();
+			}
+			final int run = validRuns[i];
+
+			// the line that became free latest, before this run starts
+			final Map.Entry<Long, ArrayDeque<Integer>> free = freeLines.lowerEntry(runs.startDays[run]);
+			if (free == null)
+				continue;
+
+			final int line = free.getValue().poll();
+			if (free.getValue().isEmpty()) {
+				freeLines.remove(free.getKey());
+			}
+			freeLines.computeIfAbsent(runs.endDays[run], end -> new ArrayDeque<>()).add(line);
+
+			selected[count] = run;
+			lines[count] = line;
+			count++;
+		}
+
+		return new LinePlan(runs, lineCount, validRuns.length, trim(selected, count), trim(lines, count));
+	}
+
+	private static int[] trim(final int[] array, final int length) {
+		return length == array.length ? array : Arrays.copyOf(array, length);
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.qwic.bike.planner;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The days of a single line that are reserved, as a bitmap over a sliding
+ * horizon of days. Many threads can reserve and release at once without a
+ * lock, and two reservations that share a day (inclusive end days, like
+ * {@link com.qwic.bike.service.PlannerService#isClash}) are never both
+ * accepted.
+ * <p>
+ * Each word holds a block of 32 days: the block number in its high half, one
+ * bit per day in its low half. Block <code>b</code> is kept in word
+ * <code>b mod words</code>, so a word that still holds an older block is free
+ * for a newer one, and days slide out of the horizon without being cleared.
+ * Both halves change in one compare-and-set.
+ * <p>
+ * A reservation sets its bits word by word, in day order. If a word has a
+ * reserved day, the words already set are rolled back. A concurrent
+ * reservation can see those bits before the rollback and be refused, but never
+ * accepted on a reserved day.
+ * <p>
+ * Accepted runs are also recorded by start day, which is unique because runs
+ * never share a day. Only a recorded run can be released, so releasing part of
+ * a run, or days of another run, is refused.
+ */
+public class OccupancyCalendar {
+
+	private static final int DAYS_PER_WORD = 32;
+
+	private static final int DAY_SHIFT = 5;
+
+	private static final long DAY_BITS = 0xFFFFFFFFL;
+
+	/**
+	 * A word that holds no block: older than any block
+	 */
+	private static final long EMPTY = (long) Integer.MIN_VALUE << 32;
+
+	private final AtomicLongArray words;
+
+	private final int horizonDays;
+
+	/**
+	 * First day that can be reserved, only increases
+	 */
+	private final AtomicLong origin;
+
+	/**
+	 * Duration of each reserved run, by start day. Runs that ended before the
+	 * horizon are forgotten.
+	 */
+	private final ConcurrentNavigableMap<Long, Long> reservedRuns = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @param originDay
+	 *            epoch day of the first day that can be reserved
+	 * @param horizonDays
+	 *            days from the origin that can be reserved
+	 */
+	public OccupancyCalendar(final long originDay, final int horizonDays) {
+		if (horizonDays < 1)
+			throw new IllegalArgumentException("Horizon must be at least 1 day");
+		this.horizonDays = horizonDays;
+		this.origin = new AtomicLong(originDay);
+		// a horizon that doesn't start on a block boundary touches 1 more block
+		this.words = new AtomicLongArray(horizonDays / DAYS_PER_WORD + 2);
+		for (int i = 0; i < words.length(); i++) {
+			words.set(i, EMPTY);
+		}
+	}
+
+	/**
+	 * Reserve the days of a run, if none of them are reserved yet
+	 *
+	 * @param startDay
+	 *            epoch day
+	 * @param durationDays
+	 * @return false if a day is reserved or the run starts before the origin
+	 * @throws IllegalArgumentException
+	 *             if the run ends after the horizon
+	 */
+	public boolean tryReserve(final long startDay, final long durationDays) {
+		final long endDay = checkEndDay(startDay, durationDays);
+		if (startDay < origin.get())
+			return false;
+
+		final long startBlock = startDay >> DAY_SHIFT;
+		final long endBlock = endDay >> DAY_SHIFT;
+		for (long block = startBlock; block <= endBlock; block++) {
+			if (!reserveWord(block, mask(block, startDay, endDay))) {
+				for (long reserved = startBlock; reserved < block; reserved++) {
+					releaseWord(reserved, mask(reserved, startDay, endDay));
+				}
+				return false;
+			}
+		}
+		reservedRuns.put(startDay, durationDays);
+		return true;
+	}
+
+	/**
+	 * Release the days of a reserved run
+	 *
+	 * @param startDay
+	 *            epoch day
+	 * @param durationDays
+	 * @return false if no run with exactly these days is reserved. Nothing is
+	 *         released.
+	 */
+	public boolean release(final long startDay, final long durationDays) {
+		// only one release of a run gets past this
+		if (!reservedRuns.remove(startDay, durationDays))
+			return false;
+
+		final long endDay = startDay + durationDays - 1;
+		for (long block = startDay >> DAY_SHIFT; block <= endDay >> DAY_SHIFT; block++) {
+			releaseWord(block, mask(block, startDay, endDay));
+		}
+		return true;
+	}
+
+	/**
+	 * @param day
+	 *            epoch day
+	 * @return false for days outside the horizon
+	 */
+	public boolean isReserved(final long day) {
+		if (day < origin.get() || day >= origin.get() + horizonDays)
+			return false;
+		final long block = day >> DAY_SHIFT;
+		final long word = words.get(slot(block));
+		return tag(word) == block && (word & (1L << (day & (DAYS_PER_WORD - 1)))) != 0;
+	}
+
+	/**
+	 * Slide the horizon forward. Days before the new origin can't be reserved
+	 * any more, their words are reused by later days.
+	 *
+	 * @param originDay
+	 *            epoch day, ignored if before the current origin
+	 */
+	public void advanceTo(final long originDay) {
+		if (origin.getAndAccumulate(originDay, Math::max) < originDay) {
+			// a run is no longer than the horizon, so these have ended
+			reservedRuns.headMap(originDay - horizonDays).clear();
+		}
+	}
+
+	/**
+	 * @param startDay
+	 * @param durationDays
+	 * @return true if the run is within the horizon
+	 */
+	public boolean isInHorizon(final long startDay, final long durationDays) {
+		final long currentOrigin = origin.get();
+		return durationDays > 0 && startDay >= currentOrigin
+				&& startDay + durationDays - 1 < currentOrigin + horizonDays;
+	}
+
+	public long getOrigin() {
+		return origin.get();
+	}
+
+	public int getHorizonDays() {
+		return horizonDays;
+	}
+
+	private long checkEndDay(final long startDay, final long durationDays) {
+		if (durationDays < 1)
+			throw new IllegalArgumentException("Duration must be at least 1 day");
+		final long endDay = startDay + durationDays - 1;
+		if (endDay >= origin.get() + horizonDays)
+			throw new IllegalArgumentException("Run ends after the horizon of " + horizonDays + " days");
+		return endDay;
+	}
+
+	private boolean reserveWord(final long block, final long mask) {
+		final int slot = slot(block);
+		while (true) {
+			final long word = words.get(slot);
+			final long tag = tag(word);
+			if (tag > block) {
+				// the block has slid out of the horizon
+				return false;
+			}
+			final long days = tag == block ? word & DAY_BITS : 0;
+			if ((days & mask) != 0)
+				return false;
+			if (words.compareAndSet(slot, word, block << 32 | days | mask))
+				return true;
+		}
+	}
+
+	private void releaseWord(final long block, final long mask) {
+		final int slot = slot(block);
+		while (true) {
+			final long word = words.get(slot);
+			if (tag(word) != block)
+				return;
+			if (words.compareAndSet(slot, word, word & ~mask))
+				return;
+		}
+	}
+
+	private int slot(final long block) {
+		return (int) Math.floorMod(block, (long) words.length());
+	}
+
+	private static long tag(final long word) {
+		return word >> 32;
+	}
+
+	/**
+	 * @return the bits of the days of a block from start to end, inclusive
+	 */
+	private static long mask(final long block, final long startDay, final long endDay) {
+		final long first = Math.max(startDay, block << DAY_SHIFT) & (DAYS_PER_WORD - 1);
+		final long last = Math.min(endDay, (block << DAY_SHIFT) + DAYS_PER_WORD - 1) & (DAYS_PER_WORD - 1);
+		return (DAY_BITS >>> (DAYS_PER_WORD - 1 - last)) & (DAY_BITS << first) & DAY_BITS;
+	}
+
+}
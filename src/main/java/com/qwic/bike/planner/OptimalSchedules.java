@@ -0,0 +1,357 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.util.IndexSortUtils;
+
+/**
+ * Every schedule with the most non-clashing runs, generated one at a time. The
+ * set of schedules is never built, it can be exponential in the number of
+ * runs.
+ * <p>
+ * Groups of clashing runs are independent, so a schedule is one optimal
+ * choice for each group. In a group, a run can be the k-th run of an optimal
+ * schedule if the longest chain of runs that ends with it has k runs, and the
+ * longest chain that starts with it has the rest. These runs form the layers of
+ * a DAG: a run can follow any run of the previous layer that ends before it
+ * starts, and each such step can always be completed. So the DAG is walked
+ * depth first without dead ends, each schedule takes at most O(n).
+ * <p>
+ * Runs that are equal are only used once, so all schedules are different.
+ * Quantities are ignored, as by {@link GreedyEndDateStrategy}.
+ */
+public class OptimalSchedules implements Iterable<int[]> {
+
+	private final RunColumns runs;
+
+	/**
+	 * In end date order
+	 */
+	private final GroupLayers[] groups;
+
+	private final int scheduleSize;
+
+	private OptimalSchedules(final RunColumns runs, final GroupLayers[] groups) {
+		this.runs = runs;
+		this.groups = groups;
+		int size = 0;
+		for (final GroupLayers group : groups) {
+			size += group.layerCount();
+		}
+		this.scheduleSize = size;
+	}
+
+	/**
+	 * Build the layers of optimal choices of each group, in O(n log n). No
+	 * schedule is generated yet.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @return
+	 */
+	public static OptimalSchedules of(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+
+		final int[] validRuns = ColumnarPlanner.removeInvalidRuns(runs, currentDateTime, maxRunDuration);
+		ColumnarPlanner.sortByEndDate(runs, validRuns);
+		ColumnarPlanner.checkCancelled();
+
+		// not presolved: a run that contains another is still a different choice
+		final int[] sortedRuns = removeEqualRuns(runs, validRuns);
+		final int[] groupOffsets = ColumnarPlanner.getClashGroups(runs, sortedRuns);
+		ColumnarPlanner.checkCancelled();
+
+		final GroupLayers[] groups = new GroupLayers[groupOffsets.length - 1];
+		for (int g = 0; g < groups.length; g++) {
+			groups[g] = GroupLayers.of(runs, sortedRuns, groupOffsets[g], groupOffsets[g + 1]);
+		}
+		return new OptimalSchedules(runs, groups);
+	}
+
+	public RunColumns getRuns() {
+		return runs;
+	}
+
+	/**
+	 * @return the number of runs in every schedule
+	 */
+	public int getScheduleSize() {
+		return scheduleSize;
+	}
+
+	public int getGroupCount() {
+		return groups.length;
+	}
+
+	/**
+	 * Schedules as indices into the runs, sorted by end date. Without valid runs
+	 * the only schedule is empty. Each schedule throws a
+	 * {@link java.util.concurrent.CancellationException} if the thread has been
+	 * interrupted.
+	 */
+	@Override
+	public Iterator<int[]> iterator() {
+		return new ScheduleIterator();
+	}
+
+	/**
+	 * @return a sequential, lazy stream of {@link #iterator()}, use
+	 *         {@link Stream#limit(long)} to bound it
+	 */
+	public Stream<int[]> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Keep the first of equal runs. Runs with the same days are next to each
+	 * other once sorted, only those are compared.
+	 */
+	private static int[] removeEqualRuns(final RunColumns runs, final int[] sortedIndices) {
+		final int[] kept = new int[sortedIndices.length];
+		int count = 0;
+		final Set<ProductionRun> sameDays = new HashSet<>();
+
+		for (int i = 0; i < sortedIndices.length; i++) {
+			final int run = sortedIndices[i];
+			final int previous = i == 0 ? -1 : sortedIndices[i - 1];
+			if (previous < 0 || runs.endDays[run] != runs.endDays[previous]
+					|| runs.startDays[run] != runs.startDays[previous]) {
+				sameDays.clear();
+			} else {
+				if (sameDays.isEmpty())
+					sameDays.add(runs.getRun(previous));
+				if (!sameDays.add(runs.getRun(run)))
+					continue;
+			}
+			kept[count++] = run;
+		}
+
+		return count == kept.length ? kept : Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * Iterates like an odometer: the last group with another choice advances, the
+	 * groups after it start again from their first choice
+	 */
+	private final class ScheduleIterator implements Iterator<int[]> {
+
+		/**
+		 * For each group, the position of the chosen run in each layer
+		 */
+		private final int[][] choices = new int[groups.length][];
+
+		private boolean hasNext = true;
+
+		private ScheduleIterator() {
+			for (int g = 0; g < groups.length; g++) {
+				choices[g] = new int[groups[g].layerCount()];
+				groups[g].fill(choices[g], 0);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		public int[] next() {
+			if (!hasNext)
+				throw new NoSuchElementException();
+			ColumnarPlanner.checkCancelled();
+
+			final int[] schedule = new int[scheduleSize];
+			int position = 0;
+			for (int g = 0; g < groups.length; g++) {
+				for (int layer = 0; layer < choices[g].length; layer++) {
+					schedule[position++] = groups[g].run(layer, choices[g][layer]);
+				}
+			}
+
+			hasNext = false;
+			for (int g = groups.length - 1; g >= 0; g--) {
+				if (groups[g].advance(choices[g])) {
+					hasNext = true;
+					break;
+				}
+				groups[g].fill(choices[g], 0);
+			}
+			return schedule;
+		}
+	}
+
+	/**
+	 * The runs of a group that are in an optimal schedule, by their position in
+	 * it
+	 */
+	private static final class GroupLayers {
+
+		private final RunColumns runs;
+
+		/**
+		 * Runs of layer k are <code>layerRuns[layerOffsets[k], layerOffsets[k +
+		 * 1])</code>, sorted by end date
+		 */
+		private final int[] layerRuns;
+		private final int[] layerOffsets;
+
+		private GroupLayers(final RunColumns runs, final int[] layerRuns, final int[] layerOffsets) {
+			this.runs = runs;
+			this.layerRuns = layerRuns;
+			this.layerOffsets = layerOffsets;
+		}
+
+		private static GroupLayers of(final RunColumns runs, final int[] sortedRuns, final int from, final int to) {
+			final int n = to - from;
+			final long[] starts = new long[n];
+			final long[] ends = new long[n];
+			for (int p = 0; p < n; p++) {
+				starts[p] = runs.startDays[sortedRuns[from + p]];
+				ends[p] = runs.endDays[sortedRuns[from + p]];
+			}
+
+			// longest chain that ends with each run. The runs that end before a run
+			// starts come before it.
+			final int[] endingWith = new int[n];
+			final int[] longestBefore = new int[n + 1];
+			for (int p = 0; p < n; p++) {
+				endingWith[p] = 1 + longestBefore[firstEndFrom(ends, starts[p])];
+				longestBefore[p + 1] = Math.max(longestBefore[p], endingWith[p]);
+			}
+			final int optimum = longestBefore[n];
+
+			// longest chain that starts with each run, from the last start back
+			final int[] byStart = new int[n];
+			for (int p = 0; p < n; p++) {
+				byStart[p] = p;
+			}
+			IndexSortUtils.sort(byStart, starts, ends);
+			final long[] sortedStarts = new long[n];
+			for (int r = 0; r < n; r++) {
+				sortedStarts[r] = starts[byStart[r]];
+			}
+			final int[] startingWith = new int[n];
+			final int[] longestAfter = new int[n + 1];
+			for (int r = n - 1; r >= 0; r--) {
+				final int p = byStart[r];
+				startingWith[p] = 1 + longestAfter[firstStartAfter(sortedStarts, ends[p])];
+				longestAfter[r] = Math.max(longestAfter[r + 1], startingWith[p]);
+			}
+
+			// runs on an optimal chain, by layer, in end date order
+			final int[] layerOffsets = new int[optimum + 1];
+			for (int p = 0; p < n; p++) {
+				if (endingWith[p] + startingWith[p] - 1 == optimum)
+					layerOffsets[endingWith[p]]++;
+			}
+			for (int k = 0; k < optimum; k++) {
+				layerOffsets[k + 1] += layerOffsets[k];
+			}
+			final int[] layerRuns = new int[layerOffsets[optimum]];
+			final int[] filled = Arrays.copyOf(layerOffsets, optimum);
+			for (int p = 0; p < n; p++) {
+				if (endingWith[p] + startingWith[p] - 1 == optimum)
+					layerRuns[filled[endingWith[p] - 1]++] = sortedRuns[from + p];
+			}
+
+			return new GroupLayers(runs, layerRuns, layerOffsets);
+		}
+
+		private int layerCount() {
+			return layerOffsets.length - 1;
+		}
+
+		private int run(final int layer, final int position) {
+			return layerRuns[layerOffsets[layer] + position];
+		}
+
+		/**
+		 * Choose the first run of each layer from <code>fromLayer</code> on
+		 */
+		private void fill(final int[] choice, final int fromLayer) {
+			for (int layer = fromLayer; layer < choice.length; layer++) {
+				choice[layer] = nextCandidate(choice, layer, 0);
+				assert choice[layer] >= 0 : "Layer " + layer + " has no run after the previous layer";
+			}
+		}
+
+		/**
+		 * Move to the next choice, depth first
+		 *
+		 * @return false if this was the last choice, the choice is then unchanged
+		 */
+		private boolean advance(final int[] choice) {
+			for (int layer = choice.length - 1; layer >= 0; layer--) {
+				final int next = nextCandidate(choice, layer, choice[layer] + 1);
+				if (next >= 0) {
+					choice[layer] = next;
+					fill(choice, layer + 1);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the first position from <code>from</code> on in the layer, of a
+		 *         run that starts after the chosen run of the previous layer ends.
+		 *         -1 if there is none.
+		 */
+		private int nextCandidate(final int[] choice, final int layer, final int from) {
+			final long previousEnd = layer == 0 ? Long.MIN_VALUE : runs.endDays[run(layer - 1, choice[layer - 1])];
+			final int size = layerOffsets[layer + 1] - layerOffsets[layer];
+			for (int position = from; position < size; position++) {
+				if (runs.startDays[run(layer, position)] > previousEnd)
+					return position;
+			}
+			return -1;
+		}
+
+		/**
+		 * @return the number of ends before the day
+		 */
+		private static int firstEndFrom(final long[] ends, final long day) {
+			int low = 0;
+			int high = ends.length;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (ends[middle] < day) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @return the position of the first start after the day
+		 */
+		private static int firstStartAfter(final long[] sortedStarts, final long day) {
+			int low = 0;
+			int high = sortedStarts.length;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (sortedStarts[middle] <= day) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.qwic.bike.planner;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves groups of clashing runs in parallel, on a dedicated
+ * {@link ForkJoinPool}.
+ * <p>
+ * Groups can't affect each other, so each is solved independently. Small
+ * groups are batched together so that a task has at least
+ * <code>minBatchRuns</code> runs. Each group writes its selected runs into its
+ * own range of the output, which is compacted afterwards, so the result is in
+ * the same order as a sequential solve.
+ * <p>
+ * Interrupting the calling thread cancels the solve. The caller stops waiting at
+ * once and gets a {@link CancellationException}, and the pool's threads stop
+ * before their next group. The caller can't wait in
+ * {@link ForkJoinPool#invoke(ForkJoinTask)}, which ignores interrupts until
+ * the whole solve is done.
+ */
+public class ParallelGroupSolver {
+
+	/**
+	 * Aim for a few tasks per thread, so uneven groups still balance
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final int minBatchRuns;
+
+	/**
+	 * @param parallelism
+	 *            number of threads
+	 * @param minBatchRuns
+	 *            groups are batched until a task has at least this many runs
+	 */
+	public ParallelGroupSolver(final int parallelism, final int minBatchRuns) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.minBatchRuns = minBatchRuns;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Same as
+	 * {@link ColumnarPlanner#getNonClashingRunsFromClashGroups(RunColumns, int[], int[], SchedulingStrategy)},
+	 * but in parallel.
+	 *
+	 * @param runs
+	 * @param sortedIndices
+	 * @param groupOffsets
+	 * @param strategy
+	 *            must be safe to call from many threads
+	 * @return the indices of the selected runs, sorted by end date
+	 */
+	public int[] getNonClashingRunsFromClashGroups(final RunColumns runs, final int[] sortedIndices,
+			final int[] groupOffsets, final SchedulingStrategy strategy) {
+		return getNonClashingRunsFromClashGroups(runs, sortedIndices, groupOffsets, strategy, null);
+	}
+
+	/**
+	 * Same as
+	 * {@link ColumnarPlanner#getNonClashingRunsFromClashGroups(RunColumns, int[], int[], SchedulingStrategy, int[])},
+	 * but in parallel. Each group writes its own range of blockers.
+	 *
+	 * @param runs
+	 * @param sortedIndices
+	 * @param groupOffsets
+	 * @param strategy
+	 *            must be safe to call from many threads
+	 * @param blockers
+	 *            null to only select
+	 * @return the indices of the selected runs, sorted by end date
+	 */
+	public int[] getNonClashingRunsFromClashGroups(final RunColumns runs, final int[] sortedIndices,
+			final int[] groupOffsets, final SchedulingStrategy strategy, final int[] blockers) {
+
+		final int groupCount = groupOffsets.length - 1;
+		// a group selects at most all of its runs, so each group writes to its own
+		// range of selected, starting at its offset
+		final int[] selected = new int[sortedIndices.length];
+		final int[] selectedCounts = new int[groupCount];
+
+		final int batchRuns = Math.max(minBatchRuns,
+				sortedIndices.length / (pool.getParallelism() * TASKS_PER_THREAD));
+
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		final ForkJoinTask<Void> solve = pool.submit(new SolveTask(cancelled, runs, sortedIndices, groupOffsets,
+				strategy, selected, selectedCounts, blockers, batchRuns, 0, groupCount));
+		try {
+			solve.get();
+		} catch (InterruptedException e) {
+			cancelled.set(true);
+			solve.cancel(false);
+			// leave the flag set, as ColumnarPlanner.checkCancelled does
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Planning was cancelled");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+
+		// compact, in group order
+		int count = 0;
+		for (int g = 0; g < groupCount; g++) {
+			System.arraycopy(selected, groupOffsets[g], selected, count, selectedCounts[g]);
+			count += selectedCounts[g];
+		}
+
+		return Arrays.copyOf(selected, count);
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private static class SolveTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6387563187315463516L;
+
+		/**
+		 * Set when the caller is interrupted, the pool's threads never are
+		 */
+		private final AtomicBoolean cancelled;
+		private final RunColumns runs;
+		private final int[] sortedIndices;
+		private final int[] groupOffsets;
+		private final SchedulingStrategy strategy;
+		private final int[] selected;
+		private final int[] selectedCounts;
+		/**
+		 * Null if runs are only selected
+		 */
+		private final int[] blockers;
+		private final int batchRuns;
+		/**
+		 * Groups, inclusive
+		 */
+		private final int fromGroup;
+		/**
+		 * Groups, exclusive
+		 */
+		private final int toGroup;
+
+		private SolveTask(final AtomicBoolean cancelled, final RunColumns runs, final int[] sortedIndices,
+				final int[] groupOffsets, final SchedulingStrategy strategy, final int[] selected,
+				final int[] selectedCounts, final int[] blockers, final int batchRuns, final int fromGroup,
+				final int toGroup) {
+			this.cancelled = cancelled;
+			this.runs = runs;
+			this.sortedIndices = sortedIndices;
+			this.groupOffsets = groupOffsets;
+			this.strategy = strategy;
+			this.selected = selected;
+			this.selectedCounts = selectedCounts;
+			this.blockers = blockers;
+			this.batchRuns = batchRuns;
+			this.fromGroup = fromGroup;
+			this.toGroup = toGroup;
+		}
+
+		@Override
+		protected void compute() {
+			final int fromRun = groupOffsets[fromGroup];
+			final int toRun = groupOffsets[toGroup];
+
+			if (toGroup - fromGroup <= 1 || toRun - fromRun <= batchRuns) {
+				for (int g = fromGroup; g < toGroup; g++) {
+					if (cancelled.get())
+						throw new CancellationException("Planning was cancelled");
+					if (blockers == null) {
+						selectedCounts[g] = strategy.selectNonClashingRuns(runs, sortedIndices, groupOffsets[g],
+								groupOffsets[g + 1], selected, groupOffsets[g]);
+					} else {
+						selectedCounts[g] = strategy.selectNonClashingRuns(runs, sortedIndices, groupOffsets[g],
+								groupOffsets[g + 1], selected, groupOffsets[g], blockers);
+					}
+				}
+				return;
+			}
+
+			// split so both halves have about the same number of runs
+			int middle = Arrays.binarySearch(groupOffsets, fromGroup, toGroup, (fromRun + toRun) >>> 1);
+			if (middle < 0) {
+				middle = -middle - 1;
+			}
+			middle = Math.min(Math.max(middle, fromGroup + 1), toGroup - 1);
+
+			invokeAll(
+					new SolveTask(cancelled, runs, sortedIndices, groupOffsets, strategy, selected, selectedCounts,
+							blockers, batchRuns, fromGroup, middle),
+					new SolveTask(cancelled, runs, sortedIndices, groupOffsets, strategy, selected, selectedCounts,
+							blockers, batchRuns, middle, toGroup));
+		}
+	}
+
+}
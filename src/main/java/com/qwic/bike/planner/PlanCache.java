@@ -0,0 +1,133 @@
+package com.qwic.bike.planner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of answers, keyed by {@link RunFingerprint}.
+ * <p>
+ * Least recently used entries are evicted when the cache is full. Entries also
+ * expire a fixed time after they were added. Safe to use from many threads.
+ *
+ * @param <V>
+ *            the answer
+ */
+public class PlanCache<V> {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final LongSupplier nanoClock;
+
+	/**
+	 * In access order, so the eldest entry is the least recently used
+	 */
+	private final LinkedHashMap<RunFingerprint, Entry<V>> entries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *            entries kept before the least recently used is evicted
+	 * @param ttlMillis
+	 *            time an entry is kept after it is added
+	 */
+	public PlanCache(final int maxSize, final long ttlMillis) {
+		this(maxSize, ttlMillis, System::nanoTime);
+	}
+
+	/**
+	 * @param maxSize
+	 * @param ttlMillis
+	 * @param nanoClock
+	 *            like {@link System#nanoTime()}, for tests
+	 */
+	public PlanCache(final int maxSize, final long ttlMillis, final LongSupplier nanoClock) {
+		this.maxSize = maxSize;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.nanoClock = nanoClock;
+		this.entries = new LinkedHashMap<RunFingerprint, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -3530128526066125487L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<RunFingerprint, Entry<V>> eldest) {
+				if (size() > PlanCache.this.maxSize) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param key
+	 * @return the cached answer, or null if there is none or it has expired
+	 */
+	public V get(final RunFingerprint key) {
+		final long now = nanoClock.getAsLong();
+
+		synchronized (entries) {
+			final Entry<V> entry = entries.get(key);
+			if (entry != null && now - entry.addedNanos < ttlNanos) {
+				hitCount.incrementAndGet();
+				return entry.answer;
+			}
+			if (entry != null) {
+				entries.remove(key);
+				evictionCount.incrementAndGet();
+			}
+		}
+
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	public void put(final RunFingerprint key, final V answer) {
+		final Entry<V> entry = new Entry<>(answer, nanoClock.getAsLong());
+
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return entries removed because the cache was full, or they expired
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private static final class Entry<V> {
+		private final V answer;
+		private final long addedNanos;
+
+		private Entry(final V answer, final long addedNanos) {
+			this.answer = answer;
+			this.addedNanos = addedNanos;
+		}
+	}
+
+}
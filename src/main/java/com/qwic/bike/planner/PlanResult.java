@@ -0,0 +1,191 @@
+package com.qwic.bike.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * The result of {@link ColumnarPlanner#plan}. Selected runs are given as
+ * indices into the original input.
+ */
+public class PlanResult {
+
+	private final RunColumns runs;
+	private final int validCount;
+	/**
+	 * Valid runs that are left after presolving, sorted by end date
+	 */
+	private final int[] sortedRuns;
+	private final int[] groupOffsets;
+	private final int[] selectedRuns;
+	/**
+	 * Time each stage took, by {@link PlanStage} ordinal
+	 */
+	private final long[] stageNanos;
+	/**
+	 * False if presolve was skipped, its stage then took no time
+	 */
+	private final boolean presolved;
+	/**
+	 * Parallel arrays: rejected run i is blocked by selected run i, or -1. Null
+	 * if rejections aren't explained.
+	 */
+	private final int[] rejectedRuns;
+	private final int[] blockingRuns;
+
+	public PlanResult(final RunColumns runs, final int validCount, final int[] sortedRuns, final int[] groupOffsets,
+			final int[] selectedRuns, final long[] stageNanos, final boolean presolved) {
+		this(runs, validCount, sortedRuns, groupOffsets, selectedRuns, stageNanos, presolved, null, null);
+	}
+
+	public PlanResult(final RunColumns runs, final int validCount, final int[] sortedRuns, final int[] groupOffsets,
+			final int[] selectedRuns, final long[] stageNanos, final boolean presolved, final int[] rejectedRuns,
+			final int[] blockingRuns) {
+		this.runs = runs;
+		this.validCount = validCount;
+		this.sortedRuns = sortedRuns;
+		this.groupOffsets = groupOffsets;
+		this.selectedRuns = selectedRuns;
+		this.stageNanos = stageNanos;
+		this.presolved = presolved;
+		this.rejectedRuns = rejectedRuns;
+		this.blockingRuns = blockingRuns;
+	}
+
+	public RunColumns getRuns() {
+		return runs;
+	}
+
+	public int getInputSize() {
+		return runs.size();
+	}
+
+	public int getInvalidCount() {
+		return runs.size() - validCount;
+	}
+
+	/**
+	 * @return valid runs removed by presolving, as duplicates or because they
+	 *         contain another run
+	 */
+	public int getPresolvedCount() {
+		return validCount - sortedRuns.length;
+	}
+
+	public int[] getSortedRuns() {
+		return sortedRuns;
+	}
+
+	public int getGroupCount() {
+		return groupOffsets.length - 1;
+	}
+
+	/**
+	 * @return the number of runs in the largest group, 0 if there are no groups
+	 */
+	public int getLargestGroupSize() {
+		int largest = 0;
+		for (int g = 0; g + 1 < groupOffsets.length; g++) {
+			largest = Math.max(largest, groupOffsets[g + 1] - groupOffsets[g]);
+		}
+		return largest;
+	}
+
+	/**
+	 * @param group
+	 * @return the position of the group's first run in {@link #getSortedRuns()}
+	 */
+	public int getGroupStart(final int group) {
+		return groupOffsets[group];
+	}
+
+	/**
+	 * @param group
+	 * @return the position after the group's last run in
+	 *         {@link #getSortedRuns()}
+	 */
+	public int getGroupEnd(final int group) {
+		return groupOffsets[group + 1];
+	}
+
+	/**
+	 * @return indices of the selected runs in the original input, sorted by end
+	 *         date
+	 */
+	public int[] getSelectedRuns() {
+		return selectedRuns;
+	}
+
+	public int getSelectedCount() {
+		return selectedRuns.length;
+	}
+
+	/**
+	 * @return the bikes assembled by the selected runs
+	 */
+	public long getSelectedQuantity() {
+		long quantity = 0;
+		for (final int i : selectedRuns) {
+			quantity += runs.getQuantity(i);
+		}
+		return quantity;
+	}
+
+	public PlanTotals getTotals() {
+		return new PlanTotals(getSelectedCount(), getSelectedQuantity());
+	}
+
+	/**
+	 * @param stage
+	 * @return the time the stage took, in nanoseconds
+	 */
+	public long getStageNanos(final PlanStage stage) {
+		return stageNanos[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 * @return false for {@link PlanStage#PRESOLVE} if it was skipped, for a
+	 *         weighted strategy or when explaining
+	 */
+	public boolean isStageRun(final PlanStage stage) {
+		return stage != PlanStage.PRESOLVE || presolved;
+	}
+
+	public boolean isExplained() {
+		return rejectedRuns != null;
+	}
+
+	/**
+	 * @return indices of the valid runs that weren't selected, in the original
+	 *         input, sorted by end date. Null if rejections aren't explained.
+	 */
+	public int[] getRejectedRuns() {
+		return rejectedRuns;
+	}
+
+	/**
+	 * @return for each rejected run, the index of a selected run that clashes
+	 *         with it, or -1 if none does. A weighted strategy skips runs that
+	 *         add no bikes, even if nothing clashes with them. Null if
+	 *         rejections aren't explained.
+	 */
+	public int[] getBlockingRuns() {
+		return blockingRuns;
+	}
+
+	/**
+	 * Map the selected indices back to the original runs
+	 *
+	 * @return
+	 */
+	public List<ProductionRun> getSelectedProductionRuns() {
+		final List<ProductionRun> selected = new ArrayList<>(selectedRuns.length);
+		for (final int i : selectedRuns) {
+			selected.add(runs.getRun(i));
+		}
+		return selected;
+	}
+
+}
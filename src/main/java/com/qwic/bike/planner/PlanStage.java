@@ -0,0 +1,36 @@
+package com.qwic.bike.planner;
+
+import java.util.Locale;
+
+/**
+ * The stages of {@link ColumnarPlanner#plan}, in order
+ */
+public enum PlanStage {
+	/**
+	 * Remove invalid runs
+	 */
+	FILTER,
+	/**
+	 * Sort the valid runs by end date
+	 */
+	SORT,
+	/**
+	 * Remove duplicate runs, and runs that contain another run
+	 */
+	PRESOLVE,
+	/**
+	 * Divide the sorted runs into groups of clashing runs
+	 */
+	GROUP,
+	/**
+	 * Select the non-clashing runs of each group
+	 */
+	SOLVE;
+
+	/**
+	 * @return lower case, for metric tags
+	 */
+	public String getTag() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+}
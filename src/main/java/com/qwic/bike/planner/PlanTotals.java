@@ -0,0 +1,30 @@
+package com.qwic.bike.planner;
+
+/**
+ * The size of an answer: the number of selected runs, and the bikes they
+ * assemble
+ */
+public final class PlanTotals {
+
+	private final int runs;
+	private final long bikes;
+
+	public PlanTotals(final int runs, final long bikes) {
+		this.runs = runs;
+		this.bikes = bikes;
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public long getBikes() {
+		return bikes;
+	}
+
+	@Override
+	public String toString() {
+		return runs + " runs, " + bikes + " bikes";
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.qwic.bike.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+/**
+ * The original greedy algorithm, kept to compare results against. O(n^2) per
+ * group.
+ * <p>
+ * Iterate over runs, sorted by end time. If a run doesn't clash with any
+ * selected run, checked with {@link PlannerService#isClash}, then select it.
+ * <p>
+ * Of runs that end on the same day, this takes the earliest start, and
+ * {@link GreedyEndDateStrategy} the latest. So both select the same number of
+ * runs, but not always the same runs.
+ */
+@Component(ReferenceStrategy.NAME)
+public class ReferenceStrategy implements SchedulingStrategy {
+
+	public static final String NAME = "reference";
+
+	@Override
+	public int selectNonClashingRuns(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset) {
+
+		final List<ProductionRun> largestNonClashingRuns = new ArrayList<>();
+		int count = 0;
+
+		for (int i = from; i < to; i++) {
+			final ProductionRun currentRun = runs.getRun(sortedRuns[i]);
+			// if this run doesn't clash with list of non-clashing runs
+			if (largestNonClashingRuns.stream()
+					.noneMatch(previousValidRun -> PlannerService.isClash(previousValidRun, currentRun))) {
+				// then add it
+				largestNonClashingRuns.add(currentRun);
+				selected[offset + count++] = sortedRuns[i];
+			}
+		}
+
+		return count;
+	}
+
+}
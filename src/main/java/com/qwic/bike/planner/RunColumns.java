@@ -0,0 +1,197 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import com.qwic.bike.model.ProductionRun;
+
+/**
+ * Columnar view of a list of production runs.
+ * <p>
+ * Every run is converted once into primitive columns: start epoch day, start
+ * time of day (nanoseconds), inclusive end epoch day and quantity of bikes.
+ * All planning stages work on these arrays and refer to runs by their index,
+ * so no {@link LocalDateTime} is created while filtering, sorting, grouping or
+ * solving.
+ * <p>
+ * Index <code>i</code> always refers to the <code>i</code>th run of the
+ * original input, so results can be mapped back with {@link #getRun(int)}.
+ */
+public class RunColumns {
+
+	// package-private, so the planner stages can read the columns directly. The
+	// arrays may be longer than size.
+	final long[] startDays;
+	final long[] startNanosOfDay;
+	final long[] endDays;
+	final long[] quantities;
+	private final int size;
+
+	/**
+	 * The runs the columns were created from, used to map indices back to the
+	 * original objects. Null if the columns were built without creating runs.
+	 */
+	private final ProductionRun[] source;
+
+	private RunColumns(final long[] startDays, final long[] startNanosOfDay, final long[] endDays,
+			final long[] quantities, final int size, final ProductionRun[] source) {
+		this.startDays = startDays;
+		this.startNanosOfDay = startNanosOfDay;
+		this.endDays = endDays;
+		this.quantities = quantities;
+		this.size = size;
+		this.source = source;
+	}
+
+	/**
+	 * Convert a list of runs into columns. The list is read once, and is not
+	 * modified.
+	 *
+	 * @param runs
+	 * @return
+	 */
+	public static RunColumns of(final List<ProductionRun> runs) {
+		final ProductionRun[] source = runs.toArray(new ProductionRun[runs.size()]);
+		final Builder builder = new Builder(source.length);
+
+		for (final ProductionRun run : source) {
+			builder.add(run.getStartDay(), run.getStartNanoOfDay(), run.getDurationDays(), run.getQuantity());
+		}
+
+		return new RunColumns(builder.startDays, builder.startNanosOfDay, builder.endDays, builder.quantities,
+				builder.size, source);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getStartDay(final int i) {
+		return startDays[i];
+	}
+
+	public long getStartNanoOfDay(final int i) {
+		return startNanosOfDay[i];
+	}
+
+	public long getEndDay(final int i) {
+		return endDays[i];
+	}
+
+	public long getDurationDays(final int i) {
+		return endDays[i] - startDays[i] + 1;
+	}
+
+	public long getQuantity(final int i) {
+		return quantities[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the original run at index <code>i</code>, or a new run if the
+	 *         columns were built without runs
+	 */
+	public ProductionRun getRun(final int i) {
+		if (source != null)
+			return source[i];
+		return new ProductionRun(getStartDateTime(i), getDurationDays(i), quantities[i]);
+	}
+
+	/**
+	 * Create a start date time from the columns. Only used when results are
+	 * mapped back, never while planning.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public LocalDateTime getStartDateTime(final int i) {
+		return LocalDateTime.of(LocalDate.ofEpochDay(startDays[i]), LocalTime.ofNanoOfDay(startNanosOfDay[i]));
+	}
+
+	/**
+	 * Growable buffer of columns, for adding runs one at a time without creating
+	 * a {@link ProductionRun} for each.
+	 */
+	public static class Builder {
+
+		private static final int DEFAULT_CAPACITY = 64;
+
+		private long[] startDays;
+		private long[] startNanosOfDay;
+		private long[] endDays;
+		private long[] quantities;
+		private int size;
+
+		public Builder() {
+			this(DEFAULT_CAPACITY);
+		}
+
+		public Builder(final int initialCapacity) {
+			final int capacity = Math.max(initialCapacity, 1);
+			this.startDays = new long[capacity];
+			this.startNanosOfDay = new long[capacity];
+			this.endDays = new long[capacity];
+			this.quantities = new long[capacity];
+		}
+
+		/**
+		 * Add a run of 1 bike
+		 */
+		public Builder add(final LocalDateTime startDateTime, final long durationDays) {
+			return add(startDateTime, durationDays, 1);
+		}
+
+		public Builder add(final LocalDateTime startDateTime, final long durationDays, final long quantity) {
+			return add(startDateTime.toLocalDate().toEpochDay(), startDateTime.toLocalTime().toNanoOfDay(),
+					durationDays, quantity);
+		}
+
+		/**
+		 * Add a run of 1 bike
+		 */
+		public Builder add(final long startDay, final long startNanoOfDay, final long durationDays) {
+			return add(startDay, startNanoOfDay, durationDays, 1);
+		}
+
+		public Builder add(final long startDay, final long startNanoOfDay, final long durationDays,
+				final long quantity) {
+			if (size == startDays.length) {
+				grow();
+			}
+			startDays[size] = startDay;
+			startNanosOfDay[size] = startNanoOfDay;
+			// end day is inclusive, a run of 1 day ends on the day it starts
+			endDays[size] = startDay + durationDays - 1;
+			quantities[size] = quantity;
+			size++;
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * The builder should not be used after building, the columns share its
+		 * arrays.
+		 *
+		 * @return
+		 */
+		public RunColumns build() {
+			return new RunColumns(startDays, startNanosOfDay, endDays, quantities, size, null);
+		}
+
+		private void grow() {
+			// grow by half, like ArrayList
+			final int capacity = startDays.length + (startDays.length >> 1) + 1;
+			startDays = Arrays.copyOf(startDays, capacity);
+			startNanosOfDay = Arrays.copyOf(startNanosOfDay, capacity);
+			endDays = Arrays.copyOf(endDays, capacity);
+			quantities = Arrays.copyOf(quantities, capacity);
+		}
+	}
+
+}
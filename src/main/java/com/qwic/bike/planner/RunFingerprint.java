@@ -0,0 +1,149 @@
+package com.qwic.bike.planner;
+
+import java.time.LocalDateTime;
+
+/**
+ * Canonical key for the answer to a planning request.
+ * <p>
+ * The answer only depends on the set of valid runs, so only those are hashed.
+ * Each run is hashed on its own and the hashes are added up, which gives the
+ * same 128 bit fingerprint for any order of the same runs, as if they had been
+ * sorted first, but without sorting. Adding (not xor) keeps duplicate runs
+ * apart.
+ * <p>
+ * The effective cutoff, the start of the earliest valid run, is part of the
+ * key. It changes as soon as a run moves into the past, so a key never matches
+ * an answer that included that run.
+ * <p>
+ * So is the selection that answered, the strategy and whether it presolved.
+ * Selections that give the same count may still select different runs, and so
+ * different bikes.
+ */
+public final class RunFingerprint {
+
+	private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+	private static final long SEED_LOW = 0xC2B2AE3D27D4EB4FL;
+
+	private final long high;
+	private final long low;
+	private final int validCount;
+	private final long cutoffDay;
+	private final long cutoffNanoOfDay;
+	private final long maxRunDuration;
+	private final String selection;
+
+	private RunFingerprint(final long high, final long low, final int validCount, final long cutoffDay,
+			final long cutoffNanoOfDay, final long maxRunDuration, final String selection) {
+		this.high = high;
+		this.low = low;
+		this.validCount = validCount;
+		this.cutoffDay = cutoffDay;
+		this.cutoffNanoOfDay = cutoffNanoOfDay;
+		this.maxRunDuration = maxRunDuration;
+		this.selection = selection;
+	}
+
+	/**
+	 * Fingerprint the runs that are valid at currentDateTime, for an answer of
+	 * the {@link GreedyEndDateStrategy}.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @return
+	 */
+	public static RunFingerprint of(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration) {
+		return of(runs, currentDateTime, maxRunDuration, GreedyEndDateStrategy.NAME);
+	}
+
+	/**
+	 * Fingerprint the runs that are valid at currentDateTime, in one pass.
+	 *
+	 * @param runs
+	 * @param currentDateTime
+	 * @param maxRunDuration
+	 * @param selection
+	 *            names how the answer's runs were selected. Answers are only
+	 *            shared by the same selection.
+	 * @return
+	 */
+	public static RunFingerprint of(final RunColumns runs, final LocalDateTime currentDateTime,
+			final long maxRunDuration, final String selection) {
+
+		final long currentDay = currentDateTime.toLocalDate().toEpochDay();
+		final long currentNanoOfDay = currentDateTime.toLocalTime().toNanoOfDay();
+
+		long high = 0;
+		long low = 0;
+		int validCount = 0;
+		// no valid runs gives the largest cutoff
+		long cutoffDay = Long.MAX_VALUE;
+		long cutoffNanoOfDay = Long.MAX_VALUE;
+
+		for (int i = 0; i < runs.size(); i++) {
+			if (!ColumnarPlanner.isRunValid(runs, i, currentDay, currentNanoOfDay, maxRunDuration))
+				continue;
+
+			final long startDay = runs.startDays[i];
+			final long startNanoOfDay = runs.startNanosOfDay[i];
+			final long endDay = runs.endDays[i];
+			final long quantity = runs.quantities[i];
+
+			high += hash(SEED_HIGH, startDay, startNanoOfDay, endDay, quantity);
+			low += hash(SEED_LOW, startDay, startNanoOfDay, endDay, quantity);
+			validCount++;
+
+			if (startDay < cutoffDay || startDay == cutoffDay && startNanoOfDay < cutoffNanoOfDay) {
+				cutoffDay = startDay;
+				cutoffNanoOfDay = startNanoOfDay;
+			}
+		}
+
+		return new RunFingerprint(high, low, validCount, cutoffDay, cutoffNanoOfDay, maxRunDuration, selection);
+	}
+
+	public int getValidCount() {
+		return validCount;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (high ^ (high >>> 32));
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof RunFingerprint))
+			return false;
+		final RunFingerprint other = (RunFingerprint) obj;
+		return high == other.high && low == other.low && validCount == other.validCount
+				&& cutoffDay == other.cutoffDay && cutoffNanoOfDay == other.cutoffNanoOfDay
+				&& maxRunDuration == other.maxRunDuration && selection.equals(other.selection);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x (%d runs, %s)", high, low, validCount, selection);
+	}
+
+	private static long hash(final long seed, final long startDay, final long startNanoOfDay, final long endDay,
+			final long quantity) {
+		long hash = mix(seed ^ startDay);
+		hash = mix(hash ^ startNanoOfDay);
+		hash = mix(hash ^ endDay);
+		return mix(hash ^ quantity);
+	}
+
+	/**
+	 * SplitMix64 finalizer, every input bit affects every output bit
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
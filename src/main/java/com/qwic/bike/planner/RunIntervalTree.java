@@ -0,0 +1,194 @@
+package com.qwic.bike.planner;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import com.qwic.bike.util.IndexSortUtils;
+
+/**
+ * Augmented interval tree over {@link RunColumns}, for finding the runs that
+ * clash with a day or a range of days in O(log n + k).
+ * <p>
+ * The tree is implicit: runs are sorted by start day, and the root of a range
+ * of positions is its middle position. Each position also keeps the latest end
+ * day in its subtree, so subtrees that end before the query can be skipped.
+ * Subtrees that start after the query are skipped by their order.
+ * <p>
+ * Runs clash if they share a day, the same as when planning. The tree is
+ * immutable, so it can be queried from several threads.
+ */
+public class RunIntervalTree {
+
+	private final RunColumns runs;
+	/**
+	 * Run indices, sorted by start day, then end day
+	 */
+	private final int[] order;
+	private final long[] starts;
+	private final long[] ends;
+	/**
+	 * Latest end day in the subtree rooted at each position
+	 */
+	private final long[] maxEnds;
+
+	private RunIntervalTree(final RunColumns runs, final int[] order) {
+		this.runs = runs;
+		this.order = order;
+		this.starts = new long[order.length];
+		this.ends = new long[order.length];
+		this.maxEnds = new long[order.length];
+
+		for (int i = 0; i < order.length; i++) {
+			starts[i] = runs.startDays[order[i]];
+			ends[i] = runs.endDays[order[i]];
+		}
+		buildMaxEnds(0, order.length);
+	}
+
+	/**
+	 * Index every run, O(n log n)
+	 * 
+	 * @param runs
+	 * @return
+	 */
+	public static RunIntervalTree of(final RunColumns runs) {
+		final int[] order = new int[runs.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		IndexSortUtils.sort(order, runs.startDays, runs.endDays);
+		return new RunIntervalTree(runs, order);
+	}
+
+	/**
+	 * Index runs that are already sorted by start day, O(n)
+	 * 
+	 * @param runs
+	 * @param sortedIndices
+	 *            the runs to index, sorted by start day. Not copied.
+	 * @return
+	 */
+	public static RunIntervalTree ofSorted(final RunColumns runs, final int[] sortedIndices) {
+		for (int i = 1; i < sortedIndices.length; i++) {
+			if (runs.startDays[sortedIndices[i - 1]] > runs.startDays[sortedIndices[i]])
+				throw new IllegalArgumentException("Runs are not sorted by start day at position " + i);
+		}
+		return new RunIntervalTree(runs, sortedIndices);
+	}
+
+	public RunColumns getRuns() {
+		return runs;
+	}
+
+	public int size() {
+		return order.length;
+	}
+
+	/**
+	 * @param day
+	 *            epoch day
+	 * @return the indices of the runs on the day, sorted by start day
+	 */
+	public int[] stab(final long day) {
+		return overlapping(day, day);
+	}
+
+	/**
+	 * @param fromDay
+	 *            epoch day, inclusive
+	 * @param toDay
+	 *            epoch day, inclusive
+	 * @return the indices of the runs on any of the days, sorted by start day
+	 */
+	public int[] overlapping(final long fromDay, final long toDay) {
+		final IndexBuffer found = new IndexBuffer();
+		forEachOverlapping(fromDay, toDay, found);
+		return found.toArray();
+	}
+
+	/**
+	 * @param fromDay
+	 *            epoch day, inclusive
+	 * @param toDay
+	 *            epoch day, inclusive
+	 * @return the number of runs on any of the days
+	 */
+	public int countOverlapping(final long fromDay, final long toDay) {
+		final int[] count = { 0 };
+		forEachOverlapping(fromDay, toDay, run -> count[0]++);
+		return count[0];
+	}
+
+	/**
+	 * @param fromDay
+	 *            epoch day, inclusive
+	 * @param toDay
+	 *            epoch day, inclusive
+	 * @param action
+	 *            given the index of each run on any of the days, in start day
+	 *            order
+	 */
+	public void forEachOverlapping(final long fromDay, final long toDay, final IntConsumer action) {
+		if (fromDay <= toDay) {
+			forEachOverlapping(0, order.length, fromDay, toDay, action);
+		}
+	}
+
+	private void forEachOverlapping(final int from, final int to, final long fromDay, final long toDay,
+			final IntConsumer action) {
+		if (from >= to)
+			return;
+
+		final int middle = (from + to) >>> 1;
+		// every run in this subtree ends before the query
+		if (maxEnds[middle] < fromDay)
+			return;
+
+		forEachOverlapping(from, middle, fromDay, toDay, action);
+
+		// this run, and every run after it, starts after the query
+		if (starts[middle] > toDay)
+			return;
+
+		if (ends[middle] >= fromDay) {
+			action.accept(order[middle]);
+		}
+
+		forEachOverlapping(middle + 1, to, fromDay, toDay, action);
+	}
+
+	/**
+	 * @return the latest end day in the range, or Long.MIN_VALUE if it is empty
+	 */
+	private long buildMaxEnds(final int from, final int to) {
+		if (from >= to)
+			return Long.MIN_VALUE;
+
+		final int middle = (from + to) >>> 1;
+		final long maxEnd = Math.max(ends[middle],
+				Math.max(buildMaxEnds(from, middle), buildMaxEnds(middle + 1, to)));
+		maxEnds[middle] = maxEnd;
+		return maxEnd;
+	}
+
+	/**
+	 * Growable array of run indices
+	 */
+	private static final class IndexBuffer implements IntConsumer {
+		private int[] indices = new int[16];
+		private int size;
+
+		@Override
+		public void accept(final int index) {
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+			indices[size++] = index;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(indices, size);
+		}
+	}
+
+}
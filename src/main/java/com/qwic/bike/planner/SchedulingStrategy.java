@@ -0,0 +1,69 @@
+package com.qwic.bike.planner;
+
+/**
+ * Solves one group of clashing runs: select the largest set of runs from the
+ * group that don't clash with each other.
+ * <p>
+ * Implementations are Spring beans, selected by name with
+ * <code>qwic-test-props.scheduling-strategy</code>.
+ */
+public interface SchedulingStrategy {
+
+	/**
+	 * Select non-clashing runs from the group
+	 * <code>sortedRuns[from, to)</code>. The group is sorted by end date, and
+	 * must not be modified.
+	 *
+	 * @param runs
+	 * @param sortedRuns
+	 *            indices into runs
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 * @param selected
+	 *            the selected indices are written here, sorted by end date
+	 * @param offset
+	 *            the position in selected to start writing
+	 * @return the number of selected runs
+	 */
+	int selectNonClashingRuns(RunColumns runs, int[] sortedRuns, int from, int to, int[] selected, int offset);
+
+	/**
+	 * Same as
+	 * {@link #selectNonClashingRuns(RunColumns, int[], int, int, int[], int)},
+	 * and explain why each other run of the group was rejected.
+	 * <p>
+	 * The default finds the blockers after selecting, in O(log k) per run.
+	 *
+	 * @param runs
+	 * @param sortedRuns
+	 * @param from
+	 * @param to
+	 * @param selected
+	 * @param offset
+	 * @param blockers
+	 *            <code>blockers[i]</code> is set to a selected run that clashes
+	 *            with <code>sortedRuns[i]</code>, for each i of the group. -1 if
+	 *            the run is selected, or no selected run clashes with it.
+	 * @return the number of selected runs
+	 */
+	default int selectNonClashingRuns(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset, final int[] blockers) {
+		final int count = selectNonClashingRuns(runs, sortedRuns, from, to, selected, offset);
+		ColumnarPlanner.findBlockers(runs, sortedRuns, from, to, selected, offset, count, blockers);
+		return count;
+	}
+
+	/**
+	 * Weighted answers can't be counted or presolved like unweighted answers, so
+	 * they are cached apart and never presolved.
+	 *
+	 * @return true if the strategy maximises the quantity of bikes, not the number
+	 *         of runs
+	 */
+	default boolean isWeighted() {
+		return false;
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.qwic.bike.planner;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Weighted interval scheduling, O(n log n). Selects the non-clashing runs that
+ * assemble the most bikes, instead of the most runs.
+ * <p>
+ * Runs are already sorted by end date, ascending. For each run, binary search
+ * for the runs that end before it starts. Then the best quantity of the first
+ * <code>k</code> runs is either the best of the first <code>k - 1</code>, or
+ * run <code>k</code> plus the best of the runs that end before it starts.
+ * <p>
+ * If taking or skipping a run gives the same quantity, it is skipped.
+ */
+@Component(WeightedStrategy.NAME)
+public class WeightedStrategy implements SchedulingStrategy {
+
+	public static final String NAME = "weighted";
+
+	/**
+	 * Check for cancellation every this many runs
+	 */
+	private static final int CANCEL_CHECK_MASK = 0xFFFF;
+
+	@Override
+	public int selectNonClashingRuns(final RunColumns runs, final int[] sortedRuns, final int from, final int to,
+			final int[] selected, final int offset) {
+
+		final int n = to - from;
+
+		// end days in sorted order, for the binary search
+		final long[] ends = new long[n];
+		for (int k = 0; k < n; k++) {
+			ends[k] = runs.endDays[sortedRuns[from + k]];
+		}
+
+		// best[k] is the most bikes from the first k runs
+		final long[] best = new long[n + 1];
+		// predecessors[k] is the number of runs that end before run k starts
+		final int[] predecessors = new int[n];
+
+		for (int k = 0; k < n; k++) {
+			if ((k & CANCEL_CHECK_MASK) == 0) {
+				ColumnarPlanner.checkCancelled();
+			}
+			final int run = sortedRuns[from + k];
+
+			predecessors[k] = countEndingBefore(ends, k, runs.startDays[run]);
+			best[k + 1] = Math.max(best[k], runs.quantities[run] + best[predecessors[k]]);
+		}
+
+		// walk back from the last run, collecting the taken runs, latest first
+		int count = 0;
+		for (int k = n; k > 0;) {
+			if (best[k] > best[k - 1]) {
+				selected[offset + count++] = sortedRuns[from + k - 1];
+				k = predecessors[k - 1];
+			} else {
+				k--;
+			}
+		}
+
+		reverse(selected, offset, offset + count);
+
+		return count;
+	}
+
+	@Override
+	public boolean isWeighted() {
+		return true;
+	}
+
+	/**
+	 * @return the number of ends in <code>ends[0, to)</code> before
+	 *         <code>startDay</code>
+	 */
+	private static int countEndingBefore(final long[] ends, final int to, final long startDay) {
+		int low = 0;
+		int high = to;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (ends[middle] < startDay) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static void reverse(final int[] array, final int from, final int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			final int swap = array[i];
+			array[i] = array[j];
+			array[j] = swap;
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.qwic.bike.properties;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,6 +17,106 @@ public class QwicTestProperties {
 	 * Default: 1000
 	 */
 	private long maxQuantityOfRuns = 1000;
+	/**
+	 * How JSON input is parsed. Default: STREAMING
+	 */
+	private ParseMode parseMode = ParseMode.STREAMING;
+	/**
+	 * Bean name of the {@link com.qwic.bike.planner.SchedulingStrategy} that
+	 * solves each group of clashing runs, "greedy" or "reference". "weighted"
+	 * maximises the quantity of bikes instead of the number of runs. Default:
+	 * greedy
+	 */
+	private String schedulingStrategy = "greedy";
+	/**
+	 * Threads used to solve groups of clashing runs in parallel. 0 uses one per
+	 * available processor, 1 disables parallel solving. Default: 0
+	 */
+	private int parallelism = 0;
+	/**
+	 * Remove duplicate runs, and runs that contain another run, before grouping.
+	 * Not used by weighted strategies. Default: true
+	 */
+	private boolean presolve = true;
+	/**
+	 * Inputs with fewer runs than this are solved on the calling thread. Default:
+	 * 20000
+	 */
+	private int parallelMinRuns = 20000;
+	/**
+	 * Small groups of clashing runs are batched into one parallel task until it
+	 * has this many runs. Default: 1024
+	 */
+	private int parallelBatchRuns = 1024;
+	/**
+	 * Threads that plan requests, off the web server's event loops. 0 uses one
+	 * per available processor. Default: 0
+	 */
+	private int planningThreads = 0;
+	/**
+	 * Requests that may wait for a planning thread. Any more are rejected with
+	 * 503 Service Unavailable. Default: 64
+	 */
+	private int planningQueueLimit = 64;
+	/**
+	 * Time a request may wait and plan for, before it is cancelled. Can be
+	 * shortened per request. Default: 30s
+	 */
+	private Duration planningDeadline = Duration.ofSeconds(30);
+	/**
+	 * Answers kept in the cache, the least recently used are evicted first. 0
+	 * disables the cache. Default: 1024
+	 */
+	private int planCacheSize = 1024;
+	/**
+	 * Time an answer is kept in the cache. Default: 60s
+	 */
+	private Duration planCacheTtl = Duration.ofSeconds(60);
+	/**
+	 * Fraction of plans kept for <code>/actuator/plans</code>, from 0 (off) to 1
+	 * (all). Default: 0.01
+	 */
+	private double diagnosticsSampleRate = 0.01;
+	/**
+	 * Sampled plans kept, the oldest is overwritten first. Each keeps its input in
+	 * memory. Default: 16
+	 */
+	private int diagnosticsBufferSize = 16;
+	/**
+	 * Most assembly lines a request may plan for. Default: 64
+	 */
+	private int maxAssemblyLines = 64;
+	/**
+	 * Clash indexes kept for <code>/production-cycle/clash-index</code>, the
+	 * oldest is evicted first. Each keeps its runs in memory. Default: 16
+	 */
+	private int maxClashIndexes = 16;
+	/**
+	 * Named backlogs kept for <code>/backlogs</code>. Default: 1000
+	 */
+	private int maxBacklogs = 1000;
+	/**
+	 * Days from today that can be reserved with <code>/reservations</code>.
+	 * Default: 2048
+	 */
+	private int reservationHorizonDays = 2048;
+	/**
+	 * Most schedules given by <code>/production-cycle/alternatives</code>.
+	 * Default: 1000
+	 */
+	private int maxAlternativeSchedules = 1000;
+
+	public enum ParseMode {
+		/**
+		 * Bind a full list of {@link com.qwic.bike.model.ProductionRun} objects with
+		 * the object mapper
+		 */
+		DATABIND,
+		/**
+		 * Read the JSON tokens straight into primitive columns
+		 */
+		STREAMING
+	}
 
 	public long getMaxRunDuration() {
 		return maxRunDuration;
@@ -31,4 +133,148 @@ public class QwicTestProperties {
 	public void setMaxQuantityOfRuns(long maxQuantityOfRuns) {
 		this.maxQuantityOfRuns = maxQuantityOfRuns;
 	}
+
+	public ParseMode getParseMode() {
+		return parseMode;
+	}
+
+	public void setParseMode(ParseMode parseMode) {
+		this.parseMode = parseMode;
+	}
+
+	public String getSchedulingStrategy() {
+		return schedulingStrategy;
+	}
+
+	public void setSchedulingStrategy(String schedulingStrategy) {
+		this.schedulingStrategy = schedulingStrategy;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public boolean isPresolve() {
+		return presolve;
+	}
+
+	public void setPresolve(boolean presolve) {
+		this.presolve = presolve;
+	}
+
+	public int getParallelMinRuns() {
+		return parallelMinRuns;
+	}
+
+	public void setParallelMinRuns(int parallelMinRuns) {
+		this.parallelMinRuns = parallelMinRuns;
+	}
+
+	public int getParallelBatchRuns() {
+		return parallelBatchRuns;
+	}
+
+	public void setParallelBatchRuns(int parallelBatchRuns) {
+		this.parallelBatchRuns = parallelBatchRuns;
+	}
+
+	public int getPlanningThreads() {
+		return planningThreads;
+	}
+
+	public void setPlanningThreads(int planningThreads) {
+		this.planningThreads = planningThreads;
+	}
+
+	public int getPlanningQueueLimit() {
+		return planningQueueLimit;
+	}
+
+	public void setPlanningQueueLimit(int planningQueueLimit) {
+		this.planningQueueLimit = planningQueueLimit;
+	}
+
+	public Duration getPlanningDeadline() {
+		return planningDeadline;
+	}
+
+	public void setPlanningDeadline(Duration planningDeadline) {
+		this.planningDeadline = planningDeadline;
+	}
+
+	public int getPlanCacheSize() {
+		return planCacheSize;
+	}
+
+	public void setPlanCacheSize(int planCacheSize) {
+		this.planCacheSize = planCacheSize;
+	}
+
+	public Duration getPlanCacheTtl() {
+		return planCacheTtl;
+	}
+
+	public void setPlanCacheTtl(Duration planCacheTtl) {
+		this.planCacheTtl = planCacheTtl;
+	}
+
+	public double getDiagnosticsSampleRate() {
+		return diagnosticsSampleRate;
+	}
+
+	public void setDiagnosticsSampleRate(double diagnosticsSampleRate) {
+		this.diagnosticsSampleRate = diagnosticsSampleRate;
+	}
+
+	public int getMaxAssemblyLines() {
+		return maxAssemblyLines;
+	}
+
+	public void setMaxAssemblyLines(int maxAssemblyLines) {
+		this.maxAssemblyLines = maxAssemblyLines;
+	}
+
+	public int getMaxBacklogs() {
+		return maxBacklogs;
+	}
+
+	public void setMaxBacklogs(int maxBacklogs) {
+		this.maxBacklogs = maxBacklogs;
+	}
+
+	public int getMaxAlternativeSchedules() {
+		return maxAlternativeSchedules;
+	}
+
+	public void setMaxAlternativeSchedules(int maxAlternativeSchedules) {
+		this.maxAlternativeSchedules = maxAlternativeSchedules;
+	}
+
+	public int getReservationHorizonDays() {
+		return reservationHorizonDays;
+	}
+
+	public void setReservationHorizonDays(int reservationHorizonDays) {
+		this.reservationHorizonDays = reservationHorizonDays;
+	}
+
+	public int getMaxClashIndexes() {
+		return maxClashIndexes;
+	}
+
+	public void setMaxClashIndexes(int maxClashIndexes) {
+		this.maxClashIndexes = maxClashIndexes;
+	}
+
+	public int getDiagnosticsBufferSize() {
+		return diagnosticsBufferSize;
+	}
+
+	public void setDiagnosticsBufferSize(int diagnosticsBufferSize) {
+		this.diagnosticsBufferSize = diagnosticsBufferSize;
+	}
 }
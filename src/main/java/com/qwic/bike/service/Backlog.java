@@ -0,0 +1,199 @@
+package com.qwic.bike.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.planner.IncrementalPlanner;
+import com.qwic.bike.planner.PlanTotals;
+
+/**
+ * A named backlog of runs, kept planned by an {@link IncrementalPlanner}.
+ * <p>
+ * Every change gets a new version, which is never reused, even by another
+ * backlog. Reading a backlog never changes it: runs that have started are only
+ * left out of the view, and are removed by the next change. All methods are
+ * synchronized, so a snapshot's ETag always matches its totals.
+ */
+public class Backlog {
+
+	private final IncrementalPlanner planner;
+
+	/**
+	 * Gives the version of each change
+	 */
+	private final LongSupplier versions;
+
+	private long version;
+
+	/**
+	 * Set once another backlog has taken this one's place in the store. Changes
+	 * must then be made to the new backlog.
+	 */
+	private boolean replaced;
+
+	/**
+	 * @param runs
+	 * @param versions
+	 *            gives a new version for each change
+	 */
+	public Backlog(final List<ProductionRun> runs, final LongSupplier versions) {
+		this.planner = new IncrementalPlanner(runs);
+		this.versions = versions;
+		this.version = versions.getAsLong();
+	}
+
+	/**
+	 * Remove, then add runs. Removed runs that aren't in the backlog are ignored.
+	 * Runs that have started are removed too.
+	 *
+	 * @param added
+	 * @param removed
+	 * @param currentDateTime
+	 * @param maxRuns
+	 *            the backlog may have fewer runs than this, after the change
+	 * @param ifMatch
+	 *            optional, the ETag the backlog must have at currentDateTime
+	 * @return the plan after the change, or null if the backlog has been
+	 *         replaced. Nothing is changed.
+	 * @throws BacklogLimitException
+	 *             if the backlog would have too many runs. Nothing is changed.
+	 * @throws BacklogConflictException
+	 *             if the ETag doesn't match. Nothing is changed.
+	 */
+	public synchronized Snapshot update(final List<ProductionRun> added, final List<ProductionRun> removed,
+			final LocalDateTime currentDateTime, final long maxRuns, final String ifMatch) {
+		if (replaced)
+			return null;
+		if (ifMatch != null && !view(currentDateTime).isMatch(ifMatch))
+			throw new BacklogConflictException("The backlog has changed since " + ifMatch);
+
+		// remove first, so a change that replaces runs fits even at the limit
+		final List<ProductionRun> removedRuns = new ArrayList<>(removed.size());
+		for (final ProductionRun run : removed) {
+			if (planner.removeRun(run))
+				removedRuns.add(run);
+		}
+		if (planner.size() - planner.countRunsStartingUpTo(currentDateTime) + added.size() >= maxRuns) {
+			removedRuns.forEach(planner::addRun);
+			throw new BacklogLimitException("A backlog may have at most " + (maxRuns - 1) + " runs");
+		}
+
+		boolean changed = !removedRuns.isEmpty();
+		changed |= planner.removeRunsStartingUpTo(currentDateTime) > 0;
+		for (final ProductionRun run : added) {
+			planner.addRun(run);
+			changed = true;
+		}
+		if (changed) {
+			version = versions.getAsLong();
+		}
+
+		return view(currentDateTime);
+	}
+
+	/**
+	 * Mark the backlog as replaced, if it still has the ETag. Changes that come
+	 * after this one are not made to it.
+	 *
+	 * @param ifMatch
+	 *            the ETag the backlog must have at currentDateTime
+	 * @param currentDateTime
+	 * @return false if it has been replaced already, or the ETag doesn't match
+	 */
+	synchronized boolean replaceIfMatch(final String ifMatch, final LocalDateTime currentDateTime) {
+		if (replaced || !view(currentDateTime).isMatch(ifMatch))
+			return false;
+		replaced = true;
+		return true;
+	}
+
+	/**
+	 * @param currentDateTime
+	 *            runs starting on or before this are left out, but not removed
+	 * @return the plan
+	 */
+	public synchronized Snapshot view(final LocalDateTime currentDateTime) {
+		return view(currentDateTime, false);
+	}
+
+	synchronized Snapshot view(final LocalDateTime currentDateTime, final boolean created) {
+		final int startedRuns = planner.countRunsStartingUpTo(currentDateTime);
+		return new Snapshot(version, startedRuns, planner.size() - startedRuns,
+				planner.getTotalsStartingAfter(currentDateTime), created);
+	}
+
+	/**
+	 * A backlog's plan, at one version and one date time
+	 */
+	public static final class Snapshot {
+		private final long version;
+		private final int startedRuns;
+		private final int runCount;
+		private final PlanTotals totals;
+		private final boolean created;
+
+		private Snapshot(final long version, final int startedRuns, final int runCount, final PlanTotals totals,
+				final boolean created) {
+			this.version = version;
+			this.startedRuns = startedRuns;
+			this.runCount = runCount;
+			this.totals = totals;
+			this.created = created;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Identifies the plan. Runs only start as time passes, so the runs left out
+		 * are always the earliest, and their number is enough to tell them apart.
+		 *
+		 * @return the version and the number of started runs that were left out,
+		 *         quoted
+		 */
+		public String getETag() {
+			return "\"" + version + "." + startedRuns + "\"";
+		}
+
+		/**
+		 * Weak comparison, as for <code>If-Match</code> and
+		 * <code>If-None-Match</code>
+		 *
+		 * @param eTags
+		 *            comma separated, or "*" for any
+		 * @return
+		 */
+		public boolean isMatch(final String eTags) {
+			final String eTag = getETag();
+			for (final String candidate : eTags.split(",")) {
+				final String trimmed = candidate.trim();
+				if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag))
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return the runs in the backlog that haven't started, selected or not
+		 */
+		public int getRunCount() {
+			return runCount;
+		}
+
+		public PlanTotals getTotals() {
+			return totals;
+		}
+
+		/**
+		 * @return true if this is the first plan of a backlog that was just created
+		 */
+		public boolean isCreated() {
+			return created;
+		}
+	}
+
+}
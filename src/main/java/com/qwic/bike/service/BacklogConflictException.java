@@ -0,0 +1,15 @@
+package com.qwic.bike.service;
+
+/**
+ * Thrown when a conditional change is made to a backlog that no longer has the
+ * ETag the client gave
+ */
+public class BacklogConflictException extends RuntimeException {
+
+	private static final long serialVersionUID = -3419260476253071865L;
+
+	public BacklogConflictException(final String message) {
+		super(message);
+	}
+
+}
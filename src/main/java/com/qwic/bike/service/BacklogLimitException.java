@@ -0,0 +1,15 @@
+package com.qwic.bike.service;
+
+/**
+ * Thrown when a backlog would have too many runs, or there is no room to store
+ * another backlog
+ */
+public class BacklogLimitException extends RuntimeException {
+
+	private static final long serialVersionUID = -6170431876226830471L;
+
+	public BacklogLimitException(final String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.qwic.bike.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.properties.QwicTestProperties;
+
+/**
+ * Named backlogs of runs, held by the server, so that clients only send
+ * changes. Each change only repairs the part of the plan it touches.
+ */
+@Service
+public class BacklogService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BacklogService.class);
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	@Autowired
+	private BacklogStore backlogStore;
+
+	/**
+	 * Last version given to any backlog
+	 */
+	private final AtomicLong lastVersion = new AtomicLong();
+
+	/**
+	 * Create a backlog, or replace the backlog with the same name
+	 *
+	 * @param name
+	 * @param runs
+	 * @param currentDateTime
+	 *            runs starting on or before this are left out of the plan
+	 * @param ifMatch
+	 *            optional, only replace the backlog if it has this ETag
+	 * @return the plan of the new backlog
+	 * @throws BacklogLimitException
+	 *             if there are too many runs, or too many backlogs
+	 * @throws BacklogConflictException
+	 *             if the ETag doesn't match, or there is no backlog to replace
+	 */
+	public Backlog.Snapshot putBacklog(final String name, final List<ProductionRun> runs,
+			final LocalDateTime currentDateTime, final String ifMatch) {
+		if (runs.size() >= qwicTestProperties.getMaxQuantityOfRuns())
+			throw new BacklogLimitException(
+					"A backlog may have at most " + (qwicTestProperties.getMaxQuantityOfRuns() - 1) + " runs");
+
+		final Backlog backlog = new Backlog(runs, lastVersion::incrementAndGet);
+		final boolean created;
+		if (ifMatch == null) {
+			created = backlogStore.put(name, backlog);
+		} else {
+			// changes that lose the race are made to the new backlog
+			final Backlog current = backlogStore.get(name);
+			if (current == null || !current.replaceIfMatch(ifMatch, currentDateTime)
+					|| !backlogStore.replace(name, current, backlog))
+				throw new BacklogConflictException("Backlog " + name + " has changed since " + ifMatch);
+			created = false;
+		}
+
+		LOG.debug("{} backlog {} with {} runs", created ? "Created" : "Replaced", name, runs.size());
+
+		return backlog.view(currentDateTime, created);
+	}
+
+	/**
+	 * Get the plan of a backlog, without changing it
+	 *
+	 * @param name
+	 * @param currentDateTime
+	 *            runs starting on or before this are left out of the plan
+	 * @return the plan, or null if there is no backlog with the name
+	 */
+	public Backlog.Snapshot getBacklogPlan(final String name, final LocalDateTime currentDateTime) {
+		final Backlog backlog = backlogStore.get(name);
+		return backlog == null ? null : backlog.view(currentDateTime);
+	}
+
+	/**
+	 * Remove, then add runs. Removed runs that aren't in the backlog are ignored.
+	 *
+	 * @param name
+	 * @param added
+	 * @param removed
+	 * @param currentDateTime
+	 *            runs starting on or before this are removed from the backlog
+	 * @param ifMatch
+	 *            optional, only change the backlog if it has this ETag
+	 * @return the plan after the change, or null if there is no backlog with the
+	 *         name
+	 * @throws BacklogLimitException
+	 *             if the backlog would have too many runs
+	 * @throws BacklogConflictException
+	 *             if the ETag doesn't match
+	 */
+	public Backlog.Snapshot updateBacklog(final String name, final List<ProductionRun> added,
+			final List<ProductionRun> removed, final LocalDateTime currentDateTime, final String ifMatch) {
+		Backlog.Snapshot plan;
+		do {
+			final Backlog backlog = backlogStore.get(name);
+			if (backlog == null)
+				return null;
+
+			// null if the backlog was replaced meanwhile, so change the new one
+			plan = backlog.update(added, removed, currentDateTime, qwicTestProperties.getMaxQuantityOfRuns(),
+					ifMatch);
+		} while (plan == null);
+
+		LOG.debug("Backlog {}: added {}, removed up to {} runs. Answer: {}", name, added.size(), removed.size(),
+				plan.getTotals());
+
+		return plan;
+	}
+
+	/**
+	 * @param name
+	 * @return false if there was no backlog with the name
+	 */
+	public boolean deleteBacklog(final String name) {
+		return backlogStore.remove(name);
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.qwic.bike.service;
+
+/**
+ * Holds named {@link Backlog}s between requests
+ */
+public interface BacklogStore {
+
+	/**
+	 * @param name
+	 * @return the backlog, or null if there is none with the name
+	 */
+	Backlog get(String name);
+
+	/**
+	 * Create a backlog, or replace the backlog with the same name
+	 *
+	 * @param name
+	 * @param backlog
+	 * @return true if it was created, false if it replaced a backlog
+	 * @throws BacklogLimitException
+	 *             if there is no room for another backlog
+	 */
+	boolean put(String name, Backlog backlog);
+
+	/**
+	 * Replace a backlog, only if the name still holds the expected backlog
+	 *
+	 * @param name
+	 * @param expected
+	 * @param replacement
+	 * @return false if the name holds another backlog, or none
+	 */
+	boolean replace(String name, Backlog expected, Backlog replacement);
+
+	/**
+	 * @param name
+	 * @return false if there was no backlog with the name
+	 */
+	boolean remove(String name);
+
+	/**
+	 * @return the number of backlogs
+	 */
+	int size();
+
+}
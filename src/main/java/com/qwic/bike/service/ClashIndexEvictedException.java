@@ -0,0 +1,14 @@
+package com.qwic.bike.service;
+
+/**
+ * Thrown when a clash index has been evicted to make room for newer indexes
+ */
+public class ClashIndexEvictedException extends RuntimeException {
+
+	private static final long serialVersionUID = 2871950321657024519L;
+
+	public ClashIndexEvictedException(final String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.qwic.bike.service;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.planner.RunIntervalTree;
+import com.qwic.bike.properties.QwicTestProperties;
+
+/**
+ * Keeps recently built {@link RunIntervalTree}s, so a client can check many
+ * runs against the same backlog without sending it again.
+ * <p>
+ * Ids are random, so one client can't guess the id of another client's index.
+ * At most <code>qwic-test-props.max-clash-indexes</code> indexes are kept, the
+ * oldest is evicted first. The ids of as many evicted indexes are remembered,
+ * so a client is told that its index is gone rather than that it never
+ * existed.
+ */
+@Component
+public class ClashIndexes {
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	private final SecureRandom random = new SecureRandom();
+
+	// in the order they were added, guarded by this
+	private final Map<Long, RunIntervalTree> indexes = new LinkedHashMap<>();
+	private final Set<Long> evictedIds = new LinkedHashSet<>();
+
+	/**
+	 * Keep an index, evicting the oldest if there is no room
+	 *
+	 * @param index
+	 * @return the id of the index, always positive
+	 */
+	public synchronized long add(final RunIntervalTree index) {
+		final int maxIndexes = Math.max(qwicTestProperties.getMaxClashIndexes(), 1);
+
+		long id;
+		do {
+			id = random.nextLong() & Long.MAX_VALUE;
+		} while (id == 0 || indexes.containsKey(id) || evictedIds.contains(id));
+		indexes.put(id, index);
+
+		final Iterator<Long> oldest = indexes.keySet().iterator();
+		while (indexes.size() > maxIndexes) {
+			evictedIds.add(oldest.next());
+			oldest.remove();
+		}
+
+		final Iterator<Long> oldestEvicted = evictedIds.iterator();
+		while (evictedIds.size() > maxIndexes) {
+			oldestEvicted.next();
+			oldestEvicted.remove();
+		}
+
+		return id;
+	}
+
+	/**
+	 * @param id
+	 * @return the index, or null if it is unknown
+	 * @throws ClashIndexEvictedException
+	 *             if the index was evicted to make room for newer ones
+	 */
+	public synchronized RunIntervalTree get(final long id) {
+		final RunIntervalTree index = indexes.get(id);
+		if (index == null && evictedIds.contains(id))
+			throw new ClashIndexEvictedException("Clash index " + id + " was evicted, at most "
+					+ qwicTestProperties.getMaxClashIndexes() + " indexes are kept");
+		return index;
+	}
+
+}
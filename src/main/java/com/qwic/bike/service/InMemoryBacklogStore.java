@@ -0,0 +1,51 @@
+package com.qwic.bike.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.properties.QwicTestProperties;
+
+/**
+ * Keeps backlogs in memory, until they are removed or the server stops
+ */
+@Component
+public class InMemoryBacklogStore implements BacklogStore {
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	private final ConcurrentMap<String, Backlog> backlogs = new ConcurrentHashMap<>();
+
+	@Override
+	public Backlog get(final String name) {
+		return backlogs.get(name);
+	}
+
+	@Override
+	public boolean put(final String name, final Backlog backlog) {
+		// the limit may be passed by a few concurrent creates, that's fine
+		if (!backlogs.containsKey(name) && backlogs.size() >= qwicTestProperties.getMaxBacklogs())
+			throw new BacklogLimitException("At most " + qwicTestProperties.getMaxBacklogs() + " backlogs are kept");
+
+		return backlogs.put(name, backlog) == null;
+	}
+
+	@Override
+	public boolean replace(final String name, final Backlog expected, final Backlog replacement) {
+		return backlogs.replace(name, expected, replacement);
+	}
+
+	@Override
+	public boolean remove(final String name) {
+		return backlogs.remove(name) != null;
+	}
+
+	@Override
+	public int size() {
+		return backlogs.size();
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.qwic.bike.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.properties.QwicTestProperties;
+
+/**
+ * Keeps a sample of recent plans in a fixed-size ring buffer, for operators.
+ * <p>
+ * Only a reference to each sampled plan is kept, nothing is rendered until a
+ * plan is asked for. When sampling is off, recording a plan is a single
+ * comparison.
+ * <p>
+ * A sampled plan keeps its input in memory until it is overwritten, so the
+ * buffer should be small.
+ */
+@Component
+public class PlanDiagnostics {
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	private double sampleRate;
+
+	private AtomicReferenceArray<PlanRecord> buffer;
+
+	/**
+	 * Id of the last sampled plan. Plan <code>id</code> is kept in slot
+	 * <code>id % buffer length</code>, until it is overwritten.
+	 */
+	private final AtomicLong lastId = new AtomicLong();
+
+	@PostConstruct
+	public void createBuffer() {
+		this.sampleRate = qwicTestProperties.getDiagnosticsSampleRate();
+		this.buffer = new AtomicReferenceArray<>(Math.max(qwicTestProperties.getDiagnosticsBufferSize(), 1));
+	}
+
+	/**
+	 * Maybe keep a plan, depending on the sample rate.
+	 *
+	 * @param plan
+	 * @param strategyName
+	 * @param currentDateTime
+	 * @return the id of the sampled plan, or 0 if it wasn't sampled
+	 */
+	public long record(final PlanResult plan, final String strategyName, final LocalDateTime currentDateTime) {
+		if (sampleRate <= 0 || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+			return 0;
+
+		final long id = lastId.incrementAndGet();
+		buffer.set(slot(id), new PlanRecord(id, Instant.now(), strategyName, currentDateTime, plan));
+		return id;
+	}
+
+	/**
+	 * @param id
+	 * @return the plan, or null if it wasn't sampled or has been overwritten
+	 */
+	public PlanRecord getRecord(final long id) {
+		if (id <= 0)
+			return null;
+		final PlanRecord record = buffer.get(slot(id));
+		return record != null && record.getId() == id ? record : null;
+	}
+
+	/**
+	 * @return the plans in the buffer, newest first
+	 */
+	public List<PlanRecord> getRecords() {
+		final List<PlanRecord> records = new ArrayList<>(buffer.length());
+		final long newest = lastId.get();
+		for (long id = newest; id > 0 && id > newest - buffer.length(); id--) {
+			final PlanRecord record = getRecord(id);
+			if (record != null) {
+				records.add(record);
+			}
+		}
+		return records;
+	}
+
+	private int slot(final long id) {
+		return (int) (id % buffer.length());
+	}
+
+	/**
+	 * A sampled plan
+	 */
+	public static final class PlanRecord {
+		private final long id;
+		private final Instant planned;
+		private final String strategyName;
+		private final LocalDateTime currentDateTime;
+		private final PlanResult plan;
+
+		private PlanRecord(final long id, final Instant planned, final String strategyName,
+				final LocalDateTime currentDateTime, final PlanResult plan) {
+			this.id = id;
+			this.planned = planned;
+			this.strategyName = strategyName;
+			this.currentDateTime = currentDateTime;
+			this.plan = plan;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public Instant getPlanned() {
+			return planned;
+		}
+
+		public String getStrategyName() {
+			return strategyName;
+		}
+
+		public LocalDateTime getCurrentDateTime() {
+			return currentDateTime;
+		}
+
+		public PlanResult getPlan() {
+			return plan;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.qwic.bike.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.planner.ColumnarPlanner;
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.planner.PlanStage;
+import com.qwic.bike.properties.QwicTestProperties.ParseMode;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers for each stage of planning, and summaries of the shape of each input.
+ * <p>
+ * All meters publish percentile histograms, so tail latency can be alerted on
+ * from <code>/actuator/prometheus</code>.
+ */
+@Component
+public class PlannerMetrics {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final Map<ParseMode, Timer> parseTimers = new EnumMap<>(ParseMode.class);
+	private final Map<PlanStage, Timer> stageTimers = new EnumMap<>(PlanStage.class);
+	private Timer decodeTimer;
+
+	private DistributionSummary inputRuns;
+	private DistributionSummary invalidRuns;
+	private DistributionSummary presolvedRuns;
+	private DistributionSummary groups;
+	private DistributionSummary largestGroupRuns;
+
+	@PostConstruct
+	public void registerMeters() {
+		for (final ParseMode mode : ParseMode.values()) {
+			parseTimers.put(mode,
+					Timer.builder("planner.parse").description("Time to parse a JSON list of runs")
+							.tag("mode", mode.name().toLowerCase(Locale.ROOT)).publishPercentileHistogram()
+							.register(meterRegistry));
+		}
+		decodeTimer = Timer.builder("planner.parse").description("Time to parse a JSON list of runs")
+				.tag("mode", "reactive").publishPercentileHistogram().register(meterRegistry);
+		for (final PlanStage stage : PlanStage.values()) {
+			stageTimers.put(stage, Timer.builder("planner.stage").description("Time each stage of planning takes")
+					.tag("stage", stage.getTag()).publishPercentileHistogram().register(meterRegistry));
+		}
+
+		inputRuns = summary("planner.input.runs", "Runs in each request", "runs");
+		invalidRuns = summary("planner.invalid.runs", "Runs removed as invalid, in each request", "runs");
+		presolvedRuns = summary("planner.presolved.runs",
+				"Duplicate runs and runs containing another run, removed in each request", "runs");
+		groups = summary("planner.groups", "Groups of clashing runs, in each request", "groups");
+		largestGroupRuns = summary("planner.group.largest.runs", "Runs in the largest group, in each request",
+				"runs");
+	}
+
+	public void recordParse(final ParseMode mode, final long nanos) {
+		parseTimers.get(mode).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the time to decode a request body into columns. It includes waiting
+	 * for the body to arrive.
+	 * 
+	 * @param nanos
+	 */
+	public void recordDecode(final long nanos) {
+		decodeTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record a count pass, which only runs the
+	 * {@link ColumnarPlanner#COUNT_STAGES}
+	 * 
+	 * @param inputSize
+	 * @param stageNanos
+	 *            by {@link PlanStage#ordinal()}
+	 */
+	public void recordCount(final int inputSize, final long[] stageNanos) {
+		for (final PlanStage stage : ColumnarPlanner.COUNT_STAGES) {
+			stageTimers.get(stage).record(stageNanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+		}
+
+		inputRuns.record(inputSize);
+	}
+
+	/**
+	 * Record a plan. Stages that were skipped aren't recorded, so they don't
+	 * skew the percentiles of the stages that ran.
+	 * 
+	 * @param plan
+	 */
+	public void recordPlan(final PlanResult plan) {
+		for (final PlanStage stage : PlanStage.values()) {
+			if (plan.isStageRun(stage)) {
+				stageTimers.get(stage).record(plan.getStageNanos(stage), TimeUnit.NANOSECONDS);
+			}
+		}
+
+		inputRuns.record(plan.getInputSize());
+		invalidRuns.record(plan.getInvalidCount());
+		presolvedRuns.record(plan.getPresolvedCount());
+		groups.record(plan.getGroupCount());
+		largestGroupRuns.record(plan.getLargestGroupSize());
+	}
+
+	private DistributionSummary summary(final String name, final String description, final String baseUnit) {
+		return DistributionSummary.builder(name).description(description).baseUnit(baseUnit)
+				.publishPercentileHistogram().register(meterRegistry);
+	}
+
+}
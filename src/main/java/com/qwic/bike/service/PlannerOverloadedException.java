@@ -0,0 +1,14 @@
+package com.qwic.bike.service;
+
+/**
+ * Thrown when there is no room to queue another solve
+ */
+public class PlannerOverloadedException extends RuntimeException {
+
+	private static final long serialVersionUID = 2671483915846202415L;
+
+	public PlannerOverloadedException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -1,12 +1,19 @@
 package com.qwic.bike.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,27 +23,106 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qwic.bike.json.PlannerJsonModule;
+import com.qwic.bike.json.ProductionRunStreamParser;
 import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.planner.CapacityAnalyser;
+import com.qwic.bike.planner.CapacityReport;
+import com.qwic.bike.planner.ColumnarPlanner;
+import com.qwic.bike.planner.GapIndex;
+import com.qwic.bike.planner.LinePlan;
+import com.qwic.bike.planner.MultiLinePlanner;
+import com.qwic.bike.planner.OptimalSchedules;
+import com.qwic.bike.planner.ParallelGroupSolver;
+import com.qwic.bike.planner.PlanCache;
+import com.qwic.bike.planner.PlanResult;
+import com.qwic.bike.planner.PlanStage;
+import com.qwic.bike.planner.PlanTotals;
+import com.qwic.bike.planner.RunColumns;
+import com.qwic.bike.planner.RunFingerprint;
+import com.qwic.bike.planner.RunIntervalTree;
+import com.qwic.bike.planner.SchedulingStrategy;
 import com.qwic.bike.properties.QwicTestProperties;
-import com.qwic.bike.util.DateTimeUtils;
+import com.qwic.bike.properties.QwicTestProperties.ParseMode;
 
 @Service
 public class PlannerService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PlannerService.class);
 
+	// the count pass keeps its own answers, its runs may differ from any strategy's
+	private static final String COUNT_SELECTION = "count";
+
 	@Autowired
 	private QwicTestProperties qwicTestProperties;
 
+	@Autowired
+	private PlannerMetrics plannerMetrics;
+
+	@Autowired
+	private PlanDiagnostics planDiagnostics;
+
+	@Autowired
+	private ClashIndexes clashIndexes;
+
+	/**
+	 * Strategies for solving each group of clashing runs, by bean name
+	 */
+	@Autowired
+	private Map<String, SchedulingStrategy> schedulingStrategies;
+
 	/**
 	 * Json mapper
 	 */
 	private final ObjectMapper mapper;
 
+	/**
+	 * Streaming json parser, reads straight into columns
+	 */
+	private final ProductionRunStreamParser streamParser;
+
+	/**
+	 * Solves groups of clashing runs in parallel, null if parallel solving is
+	 * disabled
+	 */
+	private ParallelGroupSolver parallelSolver;
+
+	/**
+	 * Answers of recent requests, null if caching is disabled
+	 */
+	private PlanCache<PlanTotals> planCache;
+
 	public PlannerService() {
 		this.mapper = new ObjectMapper();
 		// register modules, for LocalDateTime parsing
 		mapper.findAndRegisterModules();
+		// fast path for the timestamp layout our clients send
+		mapper.registerModule(new PlannerJsonModule());
+		this.streamParser = new ProductionRunStreamParser(mapper.getFactory());
+	}
+
+	@PostConstruct
+	public void startParallelSolver() {
+		final int parallelism = qwicTestProperties.getParallelism() > 0 ? qwicTestProperties.getParallelism()
+				: Runtime.getRuntime().availableProcessors();
+		if (parallelism > 1) {
+			parallelSolver = new ParallelGroupSolver(parallelism, qwicTestProperties.getParallelBatchRuns());
+		}
+	}
+
+	@PostConstruct
+	public void createPlanCache() {
+		if (qwicTestProperties.getPlanCacheSize() > 0) {
+			planCache = new PlanCache<>(qwicTestProperties.getPlanCacheSize(),
+					qwicTestProperties.getPlanCacheTtl().toMillis());
+		}
+	}
+
+	@PreDestroy
+	public void stopParallelSolver() {
+		if (parallelSolver != null) {
+			parallelSolver.shutdown();
+		}
 	}
 
 	public List<ProductionRun> maximiseNonClashingRuns(final String jsonInput)
@@ -50,9 +136,12 @@ public class PlannerService {
 
 	public List<ProductionRun> maximiseNonClashingRuns(final String jsonInput, final LocalDateTime currentDateTime)
 			throws JsonParseException, JsonMappingException, IOException {
-		List<ProductionRun> runs = parseJsonListOfProductionRuns(jsonInput);
+		final RunColumns runs = parse(jsonInput);
 
-		return maximiseNonClashingRuns(runs, currentDateTime);
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		// only the selected runs are created
+		return maximiseNonClashingRuns(runs, currentDateTime).getSelectedProductionRuns();
 	}
 
 	/**
@@ -68,159 +157,441 @@ public class PlannerService {
 
 		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
 
-		// remove invalid runs
-		runs = removeInvalidRuns(runs, currentDateTime);
+		final PlanResult plan = maximiseNonClashingRuns(RunColumns.of(runs), currentDateTime);
 
-		// get groups of clashing runs
-		final List<List<ProductionRun>> listsOfClashingRuns = getListsOfClashingRuns(runs);
+		List<ProductionRun> listOfNonClashingRuns = plan.getSelectedProductionRuns();
 
-		// debug print
-		for (List<ProductionRun> clashingRuns : listsOfClashingRuns) {
-			LOG.info("{} clashing runs: [{}]", clashingRuns.size(),
-					clashingRuns.stream().map(ProductionRun::toString).collect(Collectors.joining(", ")));
+		// the arguments are built eagerly, so only build them when they'll be logged
+		if (LOG.isTraceEnabled()) {
+			LOG.trace("Runs:\n{}",
+					listOfNonClashingRuns.stream().map(ProductionRun::toString).collect(Collectors.joining("\n")));
 		}
 
-		// for each group of clashing runs, remove least number of runs until no clash
-		List<ProductionRun> listOfNonClashingRuns = getNonClashingRunsFromListsOfClashingRuns(listsOfClashingRuns);
+		return listOfNonClashingRuns;
+	}
 
-		LOG.info("Answer: {}", listOfNonClashingRuns.size());
-		LOG.trace("Runs:\n{}",
-				listOfNonClashingRuns.stream().map(ProductionRun::toString).collect(Collectors.joining("\n")));
+	/**
+	 * Get the maximum amount of non-clashing runs, from runs already converted to
+	 * columns. The selected runs are returned as indices into the columns.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public PlanResult maximiseNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime) {
+		return maximiseNonClashingRuns(runs, currentDateTime, qwicTestProperties.getSchedulingStrategy());
+	}
 
-		return listOfNonClashingRuns;
+	/**
+	 * Get the maximum amount of non-clashing runs, solving each group of clashing
+	 * runs with the named strategy. Used to compare strategies.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @param strategyName
+	 *            bean name of a {@link SchedulingStrategy}
+	 * @return
+	 */
+	public PlanResult maximiseNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime,
+			final String strategyName) {
+		return plan(runs, currentDateTime, strategyName, false);
+	}
 
+	/**
+	 * Get the maximum amount of non-clashing runs, and for each rejected run the
+	 * selected run that blocks it. The blockers are found while solving, runs are
+	 * never compared in pairs. Never cached.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public PlanResult explainNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime) {
+
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		return plan(runs, currentDateTime, qwicTestProperties.getSchedulingStrategy(), true);
 	}
 
-	private List<ProductionRun> removeInvalidRuns(final List<ProductionRun> runs, final LocalDateTime currentDateTime) {
+	private PlanResult plan(final RunColumns runs, final LocalDateTime currentDateTime, final String strategyName,
+			final boolean explain) {
+
+		// big inputs are solved in parallel
+		final ParallelGroupSolver solver = runs.size() >= qwicTestProperties.getParallelMinRuns() ? parallelSolver
+				: null;
 
-		List<ProductionRun> validRuns = runs.stream().filter(r -> isRunValid(r, currentDateTime))
-				.collect(Collectors.toList());
+		final PlanResult plan = ColumnarPlanner.plan(runs, currentDateTime, qwicTestProperties.getMaxRunDuration(),
+				getSchedulingStrategy(strategyName), solver, qwicTestProperties.isPresolve(), explain);
 
-		LOG.warn("Removed {} invalid runs.", runs.size() - validRuns.size());
+		plannerMetrics.recordPlan(plan);
 
-		return validRuns;
+		// groups are only rendered if an operator asks for this plan
+		final long diagnosticsId = planDiagnostics.record(plan, strategyName, currentDateTime);
+
+		LOG.debug("Removed {} invalid and {} presolved runs. Answer: {}. Diagnostics id: {}", plan.getInvalidCount(),
+				plan.getPresolvedCount(), plan.getSelectedCount(), diagnosticsId);
+
+		return plan;
 	}
 
-	private boolean isRunValid(final ProductionRun run, final LocalDateTime currentDateTime) {
-		return
-		// remove runs that are less than or equal to the current date time
-		run.getStartDateTime().isAfter(currentDateTime)
-				// remove runs that have invalid duration
-				|| run.getDurationDays() <= 0 && run.getDurationDays() >= qwicTestProperties.getMaxRunDuration();
+	public int countNonClashingRuns(final String jsonInput)
+			throws JsonParseException, JsonMappingException, IOException {
+		return countNonClashingRuns(jsonInput, LocalDateTime.now());
 	}
 
-	public List<ProductionRun> parseJsonListOfProductionRuns(final String jsonListOfProductionRuns)
+	/**
+	 * Count the maximum amount of non-clashing runs. Same as
+	 * <code>maximiseNonClashingRuns(jsonInput, currentDateTime).size()</code>, but
+	 * no runs are created for the answer.
+	 * 
+	 * @param jsonInput
+	 * @param currentDateTime
+	 * @return
+	 * @throws JsonParseException
+	 * @throws JsonMappingException
+	 * @throws IOException
+	 */
+	public int countNonClashingRuns(final String jsonInput, final LocalDateTime currentDateTime)
 			throws JsonParseException, JsonMappingException, IOException {
-		List<ProductionRun> runs = mapper.readValue(jsonListOfProductionRuns, new TypeReference<List<ProductionRun>>() {
-		});
+		return countNonClashingRuns(parse(jsonInput), currentDateTime);
+	}
+
+	/**
+	 * Parse with the configured {@link ParseMode}, and record the time it took.
+	 * Databind runs keep the parsed objects as the source of their columns.
+	 */
+	private RunColumns parse(final String jsonInput) throws JsonParseException, JsonMappingException, IOException {
+		final long parseStart = System.nanoTime();
+
+		if (qwicTestProperties.getParseMode() == ParseMode.DATABIND) {
+			final List<ProductionRun> runs = parseJsonListOfProductionRuns(jsonInput);
+			plannerMetrics.recordParse(ParseMode.DATABIND, System.nanoTime() - parseStart);
+
+			return RunColumns.of(runs);
+		}
+
+		final RunColumns runs = parseJsonColumns(jsonInput);
+		plannerMetrics.recordParse(ParseMode.STREAMING, System.nanoTime() - parseStart);
+
 		return runs;
 	}
 
 	/**
-	 * Given a list of runs, divide it up into chunks of clashing runs.
+	 * Same as
+	 * <code>maximiseNonClashingRuns(runs, currentDateTime).size()</code>.
 	 * 
-	 * For example, if A only clashes with B, and B only clashes with C, and D
-	 * clashes with nothing, and E only clashes with F the result will be
-	 * <code>[[A, B, C], [D], [E, F]]</code>
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public int countNonClashingRuns(final List<ProductionRun> runs, final LocalDateTime currentDateTime) {
+		return countNonClashingRuns(RunColumns.of(runs), currentDateTime);
+	}
+
+	/**
+	 * Count the maximum amount of non-clashing runs, in one pass over the sorted
+	 * runs. No groups or selected runs are kept.
 	 * 
 	 * @param runs
+	 * @param currentDateTime
 	 * @return
 	 */
-	private List<List<ProductionRun>> getListsOfClashingRuns(List<ProductionRun> runs) {
-		// sort by start date, desc
-		runs.sort(ProductionRun.COMPARATOR);
-		final List<List<ProductionRun>> distinctListsOfClashes = new ArrayList<>();
-
-		List<ProductionRun> clashingRuns = new ArrayList<>();
-		ProductionRun previousRun = null;
-
-		for (final ProductionRun productionRun : runs) {
-			if (clashingRuns.isEmpty()) {
-				// init first run
-				clashingRuns.add(productionRun);
-			} else {
-				if (previousRun != null) {
-					if (isClash(productionRun, previousRun)) {
-						clashingRuns.add(productionRun);
-					} else {
-						// store this group of clashes
-						distinctListsOfClashes.add(clashingRuns);
-						// continue with a new group of clashes
-						previousRun = null;
-						clashingRuns = new ArrayList<>();
-						clashingRuns.add(productionRun);
-					}
-				}
-			}
-			// set the previous run
-			previousRun = productionRun;
+	public int countNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime) {
+		return totalNonClashingRuns(runs, currentDateTime).getRuns();
+	}
+
+	/**
+	 * Same as {@link #countNonClashingRuns(RunColumns, LocalDateTime)}, and also
+	 * sum the bikes of the counted runs.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public PlanTotals totalNonClashingRuns(final RunColumns runs, final LocalDateTime currentDateTime) {
+
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		final PlanTotals totals = getCachedAnswer(runs, currentDateTime, COUNT_SELECTION,
+				r -> count(r, currentDateTime));
+
+		LOG.debug("Answer: {}", totals);
+
+		return totals;
+	}
+
+	private PlanTotals count(final RunColumns runs, final LocalDateTime currentDateTime) {
+		final long[] stageNanos = new long[PlanStage.values().length];
+
+		final PlanTotals totals = ColumnarPlanner.totalNonClashingRuns(runs, currentDateTime,
+				qwicTestProperties.getMaxRunDuration(), stageNanos);
+
+		plannerMetrics.recordCount(runs.size(), stageNanos);
+
+		return totals;
+	}
+
+	/**
+	 * Get the size of the answer of the configured strategy, from the cache if the
+	 * same runs have been planned recently.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public PlanTotals getProductionCycle(final RunColumns runs, final LocalDateTime currentDateTime) {
+		return getCachedAnswer(runs, currentDateTime, getSelection(qwicTestProperties.getSchedulingStrategy()),
+				r -> maximiseNonClashingRuns(r, currentDateTime).getTotals());
+	}
+
+	/**
+	 * Name the selection of a strategy, with the presolve if it is applied. The
+	 * count is the same for every strategy, but the bikes are only the same for
+	 * the same selection.
+	 */
+	private String getSelection(final String strategyName) {
+		final boolean presolved = qwicTestProperties.isPresolve() && !getSchedulingStrategy(strategyName).isWeighted();
+		return presolved ? strategyName + "+presolve" : strategyName;
+	}
+
+	/**
+	 * Measure the line occupancy if every valid run was accepted: the peak number
+	 * of runs on any day, and the fewest lines that fit every run. Runs are swept
+	 * in day order, never compared in pairs.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @return
+	 */
+	public CapacityReport analyseCapacity(final RunColumns runs, final LocalDateTime currentDateTime) {
+
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		final CapacityReport report = CapacityAnalyser.analyse(runs, currentDateTime,
+				qwicTestProperties.getMaxRunDuration());
+
+		LOG.debug("Peak of {} runs on {}", report.getPeakDepth(), report.getPeakDay());
+
+		return report;
+	}
+
+	/**
+	 * Build an interval tree over a backlog of runs, and keep it so that runs can
+	 * be checked against it with {@link #getClashes(long, LocalDateTime, long)}.
+	 * 
+	 * @param runs
+	 *            every run is indexed, even runs in the past
+	 * @return the id of the index
+	 */
+	public long indexRuns(final RunColumns runs) {
+
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		final long id = clashIndexes.add(RunIntervalTree.of(runs));
+
+		LOG.debug("Indexed {} runs. Clash index id: {}", runs.size(), id);
+
+		return id;
+	}
+
+	/**
+	 * Get the runs of an indexed backlog that clash with a proposed run, in
+	 * O(log n + k). Runs clash if they share a day.
+	 * 
+	 * @param indexId
+	 *            from {@link #indexRuns(RunColumns)}
+	 * @param startDateTime
+	 *            of the proposed run
+	 * @param durationDays
+	 *            of the proposed run
+	 * @return the clashing runs, sorted by start date, or null if the index is
+	 *         unknown
+	 * @throws ClashIndexEvictedException
+	 *             if the index was evicted
+	 */
+	public List<ProductionRun> getClashes(final long indexId, final LocalDateTime startDateTime,
+			final long durationDays) {
+		final RunIntervalTree index = clashIndexes.get(indexId);
+		if (index == null)
+			return null;
+
+		final long startDay = startDateTime.toLocalDate().toEpochDay();
+		final int[] clashes = index.overlapping(startDay, startDay + durationDays - 1);
+
+		final List<ProductionRun> clashingRuns = new ArrayList<>(clashes.length);
+		for (final int run : clashes) {
+			clashingRuns.add(index.getRuns().getRun(run));
+		}
+		return clashingRuns;
+	}
+
+	/**
+	 * Find the earliest day that a run of each duration could start, without
+	 * clashing with the planned schedule. Each duration is found in O(log n) in
+	 * an index of the gaps of the schedule.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @param after
+	 *            runs start on a later day than this, and than the current date
+	 * @param durations
+	 *            in days, each at least 1
+	 * @return the earliest start day of each duration
+	 */
+	public LocalDate[] findEarliestStarts(final RunColumns runs, final LocalDateTime currentDateTime,
+			final LocalDateTime after, final long[] durations) {
+
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		final GapIndex gaps = GapIndex.of(maximiseNonClashingRuns(runs, currentDateTime));
+		final LocalDateTime from = after.isAfter(currentDateTime) ? after : currentDateTime;
+		final long fromDay = from.toLocalDate().toEpochDay() + 1;
+
+		final LocalDate[] starts = new LocalDate[durations.length];
+		for (int i = 0; i < durations.length; i++) {
+			starts[i] = LocalDate.ofEpochDay(gaps.earliestStart(fromDay, durations[i]));
 		}
-		// add the final list of clashes
-		distinctListsOfClashes.add(clashingRuns);
 
-		return distinctListsOfClashes;
+		LOG.debug("Found the earliest start of {} durations in {} gaps", durations.length, gaps.getGapCount());
+
+		return starts;
 	}
 
-	private List<ProductionRun> getNonClashingRunsFromListsOfClashingRuns(List<List<ProductionRun>> listsOfClashes) {
+	/**
+	 * Get different schedules that all have the maximum amount of non-clashing
+	 * runs. Each schedule is generated on demand, the set of all schedules is
+	 * never built.
+	 * 
+	 * @param runs
+	 * @param currentDateTime
+	 * @param limit
+	 *            most schedules to return
+	 * @return schedules as indices into the runs, each sorted by end date. There
+	 *         is at least one, which is empty if no run is valid.
+	 */
+	public List<int[]> findOptimalSchedules(final RunColumns runs, final LocalDateTime currentDateTime,
+			final int limit) {
 
-		List<ProductionRun> answer = new ArrayList<>();
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
+
+		final OptimalSchedules schedules = OptimalSchedules.of(runs, currentDateTime,
+				qwicTestProperties.getMaxRunDuration());
 
-		// run through each group of clashes
-		for (List<ProductionRun> clashes : listsOfClashes) {
-			// for each group, get the largest non-clashing combo
-			List<ProductionRun> combo = getLargestNonClashingCombo(clashes);
-			// add to answer
-			answer.addAll(combo);
+		final List<int[]> found = new ArrayList<>();
+		for (final Iterator<int[]> iterator = schedules.iterator(); iterator.hasNext() && found.size() < limit;) {
+			found.add(iterator.next());
 		}
 
-		return answer;
+		LOG.debug("Found {} schedules of {} runs in {} groups", found.size(), schedules.getScheduleSize(),
+				schedules.getGroupCount());
+
+		return found;
 	}
 
 	/**
-	 * Greedy algorithm. Sort by end time, ascending. Iterate over runs. If it
-	 * doesn't clash with 'answer' list, then add it to 'answer' list.
+	 * Get the maximum amount of runs that can be placed on several identical
+	 * assembly lines, without clashes on any line.
 	 * 
-	 * @param listOfClashingRuns
+	 * @param runs
+	 * @param currentDateTime
+	 * @param lineCount
+	 *            at least 1
 	 * @return
 	 */
-	private List<ProductionRun> getLargestNonClashingCombo(List<ProductionRun> listOfClashingRuns) {
+	public LinePlan planLines(final RunColumns runs, final LocalDateTime currentDateTime, final int lineCount) {
 
-		Collections.sort(listOfClashingRuns);
+		assert runs.size() < qwicTestProperties.getMaxQuantityOfRuns();
 
-		List<ProductionRun> largestNonClashingRuns = new ArrayList<>();
+		final LinePlan plan = MultiLinePlanner.plan(runs, currentDateTime, qwicTestProperties.getMaxRunDuration(),
+				lineCount);
+
+		LOG.debug("Removed {} invalid runs. Answer on {} lines: {}", plan.getInvalidCount(), lineCount,
+				plan.getSelectedCount());
+
+		return plan;
+	}
 
-		for (ProductionRun currentRun : listOfClashingRuns) {
-			// if this run doesn't clash with list of non-clashing runs
-			if (largestNonClashingRuns.stream().noneMatch(previousValidRun -> isClash(previousValidRun, currentRun))) {
-				// then add it
-				largestNonClashingRuns.add(currentRun);
-			}
+	/**
+	 * @return null if caching is disabled
+	 */
+	public PlanCache<PlanTotals> getPlanCache() {
+		return planCache;
+	}
+
+	/**
+	 * Get the answer from the cache, or solve and cache it
+	 */
+	private PlanTotals getCachedAnswer(final RunColumns runs, final LocalDateTime currentDateTime,
+			final String selection, final Function<RunColumns, PlanTotals> solve) {
+		if (planCache == null)
+			return solve.apply(runs);
+
+		final RunFingerprint key = RunFingerprint.of(runs, currentDateTime, qwicTestProperties.getMaxRunDuration(),
+				selection);
+
+		final PlanTotals cached = planCache.get(key);
+		if (cached != null) {
+			LOG.debug("Cached answer for {}", key);
+			return cached;
 		}
 
-		return largestNonClashingRuns;
+		final PlanTotals answer = solve.apply(runs);
+		planCache.put(key, answer);
+		return answer;
 	}
 
-	static public boolean isClash(final ProductionRun thisRun, final ProductionRun thatRun) {
+	public List<ProductionRun> parseJsonListOfProductionRuns(final String jsonListOfProductionRuns)
+			throws JsonParseException, JsonMappingException, IOException {
+		List<ProductionRun> runs = mapper.readValue(jsonListOfProductionRuns, new TypeReference<List<ProductionRun>>() {
+		});
+		return runs;
+	}
 
-		LocalDateTime thisStart = thisRun.getStartDateTime();
-		LocalDateTime thatStart = thatRun.getStartDateTime();
-		LocalDateTime thisEnd = thisRun.getEndDateTime();
-		LocalDateTime thatEnd = thatRun.getEndDateTime();
-
-		// if this' start is between the other's start/end
-		if (DateTimeUtils.isDateTimeInRange(thisStart, thatStart, thatEnd))
-			return true;
-		// if this' end is between the other's start/end
-		if (DateTimeUtils.isDateTimeInRange(thisEnd, thatStart, thatEnd))
-			return true;
-		// if that's start is between this' start/end
-		if (DateTimeUtils.isDateTimeInRange(thatStart, thisStart, thisEnd))
-			return true;
-		// if that's end is between this' start/end
-		if (DateTimeUtils.isDateTimeInRange(thatEnd, thisStart, thisEnd))
-			return true;
-
-		return false;
+	/**
+	 * Parse a JSON list of production runs straight into columns, without
+	 * creating a {@link ProductionRun} for each element.
+	 * 
+	 * @param jsonListOfProductionRuns
+	 * @return
+	 * @throws JsonMappingException
+	 *             if an element is malformed, with the element's location
+	 * @throws IOException
+	 */
+	public RunColumns parseJsonColumns(final String jsonListOfProductionRuns)
+			throws JsonMappingException, IOException {
+		return streamParser.parse(jsonListOfProductionRuns);
+	}
+
+	public RunColumns parseJsonColumns(final byte[] jsonListOfProductionRuns)
+			throws JsonMappingException, IOException {
+		return streamParser.parse(jsonListOfProductionRuns);
+	}
+
+	public RunColumns parseJsonColumns(final InputStream jsonListOfProductionRuns)
+			throws JsonMappingException, IOException {
+		return streamParser.parse(jsonListOfProductionRuns);
+	}
+
+	private SchedulingStrategy getSchedulingStrategy(final String strategyName) {
+		final SchedulingStrategy strategy = schedulingStrategies.get(strategyName);
+		if (strategy == null)
+			throw new IllegalArgumentException("Unknown scheduling strategy '" + strategyName + "', expected one of "
+					+ schedulingStrategies.keySet());
+		return strategy;
+	}
+
+	/**
+	 * Runs clash if they share a day. A line works on one run a day, so two runs
+	 * on the same day clash even if their times of day don't overlap. End days
+	 * are inclusive. Every planner compares runs like this.
+	 * 
+	 * @param thisRun
+	 * @param thatRun
+	 * @return
+	 */
+	static public boolean isClash(final ProductionRun thisRun, final ProductionRun thatRun) {
+		// neither run ends before the other starts
+		return thisRun.getStartDay() <= thatRun.getEndDay() && thatRun.getStartDay() <= thisRun.getEndDay();
 	}
 
 }
@@ -0,0 +1,115 @@
+package com.qwic.bike.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.qwic.bike.properties.QwicTestProperties;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs CPU-bound planning off the Netty event loops, on a bounded pool of
+ * threads sized to the cores.
+ * <p>
+ * At most <code>qwic-test-props.planning-queue-limit</code> solves wait for a
+ * thread. Beyond that a solve is rejected at once with a
+ * {@link PlannerOverloadedException}, instead of piling up. A solve that passes
+ * its deadline, or whose subscriber cancels, is interrupted.
+ */
+@Component
+public class PlanningScheduler {
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void start() {
+		final int threads = qwicTestProperties.getPlanningThreads() > 0 ? qwicTestProperties.getPlanningThreads()
+				: Runtime.getRuntime().availableProcessors();
+
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(qwicTestProperties.getPlanningQueueLimit()), new PlanningThreadFactory(),
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@PreDestroy
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Run a solve on the planning threads, with the default deadline.
+	 *
+	 * @param solve
+	 * @return
+	 */
+	public <T> Mono<T> schedule(final Callable<T> solve) {
+		return schedule(solve, qwicTestProperties.getPlanningDeadline());
+	}
+
+	/**
+	 * Run a solve on the planning threads.
+	 * <p>
+	 * Errors with {@link PlannerOverloadedException} if the queue is full, or
+	 * {@link java.util.concurrent.TimeoutException} if the deadline passes first.
+	 *
+	 * @param solve
+	 *            should stop when its thread is interrupted
+	 * @param deadline
+	 *            measured from subscription, including time in the queue
+	 * @return
+	 */
+	public <T> Mono<T> schedule(final Callable<T> solve, final Duration deadline) {
+		final Mono<T> scheduled = Mono.create(sink -> {
+			final Future<?> future;
+			try {
+				future = executor.submit(() -> {
+					try {
+						sink.success(solve.call());
+					} catch (Throwable e) {
+						sink.error(e);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				sink.error(new PlannerOverloadedException(
+						"Planner queue is full, " + executor.getQueue().size() + " solves are waiting", e));
+				return;
+			}
+			// a running solve is interrupted. A queued solve is removed, so it
+			// doesn't hold a place in the queue until a thread gets to it.
+			sink.onCancel(() -> {
+				future.cancel(true);
+				executor.remove((Runnable) future);
+			});
+		});
+
+		return scheduled.timeout(deadline);
+	}
+
+	private static class PlanningThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "planner-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.qwic.bike.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.qwic.bike.planner.OccupancyCalendar;
+import com.qwic.bike.properties.QwicTestProperties;
+
+/**
+ * Live reservations of the days of a single line, for many users at once.
+ * Unlike planning, a reservation is accepted or refused straight away: first
+ * come, first served.
+ */
+@Service
+public class ReservationService {
+
+	@Autowired
+	private QwicTestProperties qwicTestProperties;
+
+	private OccupancyCalendar calendar;
+
+	@PostConstruct
+	public void createCalendar() {
+		this.calendar = new OccupancyCalendar(LocalDate.now().toEpochDay(),
+				Math.max(qwicTestProperties.getReservationHorizonDays(), 1));
+	}
+
+	/**
+	 * Reserve the days of a run, if none of them are reserved
+	 *
+	 * @param startDateTime
+	 * @param durationDays
+	 * @return false if a day is already reserved
+	 */
+	public boolean reserve(final LocalDateTime startDateTime, final long durationDays) {
+		calendar.advanceTo(LocalDate.now().toEpochDay());
+		return calendar.tryReserve(startDateTime.toLocalDate().toEpochDay(), durationDays);
+	}
+
+	/**
+	 * Release the days of a reserved run
+	 *
+	 * @param startDateTime
+	 * @param durationDays
+	 * @return false if no run with exactly these days is reserved
+	 */
+	public boolean release(final LocalDateTime startDateTime, final long durationDays) {
+		return calendar.release(startDateTime.toLocalDate().toEpochDay(), durationDays);
+	}
+
+	/**
+	 * @param startDateTime
+	 * @param durationDays
+	 * @return true if the run starts today or later, and ends within the horizon
+	 */
+	public boolean isInHorizon(final LocalDateTime startDateTime, final long durationDays) {
+		calendar.advanceTo(LocalDate.now().toEpochDay());
+		return calendar.isInHorizon(startDateTime.toLocalDate().toEpochDay(), durationDays);
+	}
+
+	public int getHorizonDays() {
+		return calendar.getHorizonDays();
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.qwic.bike.util;
+
+public abstract class IndexSortUtils {
+
+	/**
+	 * Below this size a range is sorted with insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * Sort an array of indices by two primitive keys, without boxing.
+	 * <p>
+	 * Indices are ordered by <code>primary[index]</code>, ties are ordered by
+	 * <code>secondary[index]</code>. The sort is stable, so remaining ties keep
+	 * their original order.
+	 * <p>
+	 * E.g. sorting indices <code>[0, 1, 2]</code> with primary
+	 * <code>[5, 3, 5]</code> and secondary <code>[2, 9, 1]</code> gives
+	 * <code>[1, 2, 0]</code>
+	 *
+	 * @param indices
+	 *            the indices to sort, in place
+	 * @param primary
+	 * @param secondary
+	 */
+	public static void sort(final int[] indices, final long[] primary, final long[] secondary) {
+		sort(indices, 0, indices.length, primary, secondary);
+	}
+
+	/**
+	 * Sort the range <code>[from, to)</code> of an array of indices. See
+	 * {@link #sort(int[], long[], long[])}
+	 *
+	 * @param indices
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 * @param primary
+	 * @param secondary
+	 */
+	public static void sort(final int[] indices, final int from, final int to, final long[] primary,
+			final long[] secondary) {
+		if (to - from < 2)
+			return;
+		final int[] buffer = new int[to - from];
+		mergeSort(indices, buffer, from, to, primary, secondary);
+	}
+
+	private static void mergeSort(final int[] indices, final int[] buffer, final int from, final int to,
+			final long[] primary, final long[] secondary) {
+
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(indices, from, to, primary, secondary);
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+		mergeSort(indices, buffer, from, middle, primary, secondary);
+		mergeSort(indices, buffer, middle, to, primary, secondary);
+
+		// already in order, nothing to merge
+		if (compare(indices[middle - 1], indices[middle], primary, secondary) <= 0)
+			return;
+
+		// merge via the buffer, the left half is copied out first
+		final int leftLength = middle - from;
+		System.arraycopy(indices, from, buffer, 0, leftLength);
+
+		int left = 0;
+		int right = middle;
+		int out = from;
+		while (left < leftLength && right < to) {
+			if (compare(indices[right], buffer[left], primary, secondary) < 0) {
+				indices[out++] = indices[right++];
+			} else {
+				indices[out++] = buffer[left++];
+			}
+		}
+		// any remaining right elements are already in place
+		System.arraycopy(buffer, left, indices, out, leftLength - left);
+	}
+
+	private static void insertionSort(final int[] indices, final int from, final int to, final long[] primary,
+			final long[] secondary) {
+		for (int i = from + 1; i < to; i++) {
+			final int index = indices[i];
+			int j = i - 1;
+			while (j >= from && compare(index, indices[j], primary, secondary) < 0) {
+				indices[j + 1] = indices[j];
+				j--;
+			}
+			indices[j + 1] = index;
+		}
+	}
+
+	private static int compare(final int a, final int b, final long[] primary, final long[] secondary) {
+		final int result = Long.compare(primary[a], primary[b]);
+		if (result != 0)
+			return result;
+		return Long.compare(secondary[a], secondary[b]);
+	}
+
+}
@@ -3,8 +3,11 @@ package com.qwic.bike;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
@@ -22,6 +25,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.planner.RunColumns;
 import com.qwic.bike.service.PlannerService;
 
 @RunWith(SpringRunner.class)
@@ -148,4 +152,124 @@ public class ParseTest {
 
 		plannerService.parseJsonListOfProductionRuns(inputJson);
 	}
+
+	@Test
+	public void testParseJsonColumnsMatchesDatabind() throws JsonParseException, JsonMappingException, IOException {
+
+		// json input to be tested
+		final String inputJson = "[ " //
+				+ "{ " //
+				+ "\"startingDay\": \"2018-01-03T00:00:00.000Z\", \"duration\": 5 " //
+				+ "}," //
+				+ "{" //
+				+ "\"duration\": 2, \"startingDay\": \"2018-01-09T00:00:00.000Z\"" //
+				+ "}," //
+				+ "{" //
+				+ "\"startingDay\": \"2018-01-24T12:30:00.000Z\", \"duration\": 5" //
+				+ "}" //
+				+ "]";
+
+		final List<ProductionRun> expected = plannerService.parseJsonListOfProductionRuns(inputJson);
+
+		// all sources should give the same columns
+		for (RunColumns columns : Arrays.asList(plannerService.parseJsonColumns(inputJson),
+				plannerService.parseJsonColumns(inputJson.getBytes(StandardCharsets.UTF_8)),
+				plannerService.parseJsonColumns(
+						new ByteArrayInputStream(inputJson.getBytes(StandardCharsets.UTF_8))))) {
+
+			assertEquals(expected.size(), columns.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i), columns.getRun(i));
+			}
+		}
+	}
+
+	@Test
+	public void testParseJsonColumnsEmpty() throws JsonParseException, JsonMappingException, IOException {
+		assertEquals(0, plannerService.parseJsonColumns("[ ]").size());
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testParseJsonColumnsMappingException() throws JsonParseException, JsonMappingException, IOException {
+
+		// json input to be tested
+		final String inputJson = "[ " //
+				+ "{ " //
+				+ "\"startingDay\": \"2018-01-03T00:00:00.000Z\", \"duration\": 5 " //
+				// missing close brace, json invalid
+				// + "}" //
+				+ "]";
+
+		plannerService.parseJsonColumns(inputJson);
+	}
+
+	@Test
+	public void testParseJsonColumnsReportsElementPosition() throws JsonParseException, IOException {
+
+		// json input to be tested, the second element is invalid
+		final String inputJson = "[\n" //
+				+ "{ \"startingDay\": \"2018-01-03T00:00:00.000Z\", \"duration\": 5 },\n" //
+				+ "{ \"startingDay\": \"not a date\", \"duration\": 5 }\n" //
+				+ "]";
+
+		try {
+			plannerService.parseJsonColumns(inputJson);
+			fail("Expected a JsonMappingException");
+		} catch (JsonMappingException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Element 1"));
+			assertNotNull(e.getLocation());
+			assertEquals(3, e.getLocation().getLineNr());
+		}
+	}
+
+	@Test
+	public void testParseOtherTimestampLayouts() throws JsonParseException, JsonMappingException, IOException {
+
+		// json input to be tested, not in the fixed layout
+		final String inputJson = "[ " //
+				+ "{ \"startingDay\": \"2018-01-02T10:15:30Z\", \"duration\": 5 }," //
+				+ "{ \"startingDay\": \"2018-01-09T10:15\", \"duration\": 7 }" //
+				+ "]";
+
+		final List<ProductionRun> runs = plannerService.parseJsonListOfProductionRuns(inputJson);
+		final RunColumns columns = plannerService.parseJsonColumns(inputJson);
+
+		final List<ProductionRun> expected = Arrays.asList(
+				new ProductionRun(LocalDateTime.of(2018, 1, 2, 10, 15, 30), 5),
+				new ProductionRun(LocalDateTime.of(2018, 1, 9, 10, 15), 7));
+
+		assertEquals(expected, runs);
+		assertEquals(expected, Arrays.asList(columns.getRun(0), columns.getRun(1)));
+	}
+
+	@Test
+	public void testParseQuantity() throws JsonParseException, JsonMappingException, IOException {
+
+		// json input to be tested, quantity is optional
+		final String inputJson = "[ " //
+				+ "{ \"startingDay\": \"2018-01-02T00:00:00.000Z\", \"duration\": 5, \"quantity\": 40 }," //
+				+ "{ \"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 7 }" //
+				+ "]";
+
+		final List<ProductionRun> runs = plannerService.parseJsonListOfProductionRuns(inputJson);
+		final RunColumns columns = plannerService.parseJsonColumns(inputJson);
+
+		final List<ProductionRun> expected = Arrays.asList(
+				new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5, 40),
+				new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7, 1));
+
+		assertEquals(expected, runs);
+		assertEquals(expected, Arrays.asList(columns.getRun(0), columns.getRun(1)));
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testUnknownFieldRejected() throws JsonParseException, JsonMappingException, IOException {
+
+		// json input to be tested
+		final String inputJson = "[ " //
+				+ "{ \"startingDay\": \"2018-01-03T00:00:00.000Z\", \"duration\": 5, \"colour\": \"red\" }" //
+				+ "]";
+
+		plannerService.parseJsonListOfProductionRuns(inputJson);
+	}
 }
@@ -0,0 +1,169 @@
+package com.qwic.bike.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.qwic.bike.api.response.ProductionCycleResponse;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class BacklogControllerTest {
+
+	// so that the tests always run, assume that the current date is earlier than
+	// the data.
+	private static final String validCurrentDate = "2018-01-01T00:00:00";
+
+	// A, B and C. B clashes with C
+	private static final String inputJson = "[ " //
+			+ "{\"startingDay\": \"2018-01-02T00:00:00.000Z\", \"duration\": 5}," //
+			+ "{\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 7}," //
+			+ "{\"startingDay\": \"2018-01-15T00:00:00.000Z\", \"duration\": 6}" //
+			+ "]";
+
+	// D ends before C starts, B is removed
+	private static final String deltaJson = "{" //
+			+ "\"add\": [{\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 3}]," //
+			+ "\"remove\": [{\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 7}]" //
+			+ "}";
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	public void testCreateThenPatch() {
+		EntityExchangeResult<ProductionCycleResponse> created = webTestClient.put()
+				.uri("/backlogs/create-then-patch?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated()
+				.expectBody(ProductionCycleResponse.class).returnResult();
+		assertEquals(2, created.getResponseBody().getProductionCycle());
+
+		EntityExchangeResult<ProductionCycleResponse> patched = webTestClient.patch()
+				.uri("/backlogs/create-then-patch?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(deltaJson).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult();
+		assertEquals(3, patched.getResponseBody().getProductionCycle());
+
+		assertNotEquals(created.getResponseHeaders().getETag(), patched.getResponseHeaders().getETag());
+	}
+
+	@Test
+	public void testUnchangedPlanIsNotModified() {
+		String eTag = webTestClient.put().uri("/backlogs/unchanged?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseHeaders().getETag();
+
+		webTestClient.get().uri("/backlogs/unchanged?currentDateTime={now}", validCurrentDate)
+				.header("If-None-Match", eTag).exchange().expectStatus().isNotModified().expectHeader()
+				.valueEquals("ETag", eTag);
+
+		// A has started, so the backlog changes
+		ProductionCycleResponse later = webTestClient.get()
+				.uri("/backlogs/unchanged?currentDateTime={now}", "2018-01-03T00:00:00").header("If-None-Match", eTag)
+				.exchange().expectStatus().isOk().expectBody(ProductionCycleResponse.class).returnResult()
+				.getResponseBody();
+		assertEquals(1, later.getProductionCycle());
+	}
+
+	@Test
+	public void testGetDoesNotChangeBacklog() {
+		String eTag = webTestClient.put().uri("/backlogs/read-only?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseHeaders().getETag();
+
+		// A has started, so it is left out
+		EntityExchangeResult<ProductionCycleResponse> later = webTestClient.get()
+				.uri("/backlogs/read-only?currentDateTime={now}", "2018-01-03T00:00:00").exchange().expectStatus()
+				.isOk().expectBody(ProductionCycleResponse.class).returnResult();
+		assertEquals(1, later.getResponseBody().getProductionCycle());
+		assertNotEquals(eTag, later.getResponseHeaders().getETag());
+
+		// but not removed
+		webTestClient.get().uri("/backlogs/read-only?currentDateTime={now}", validCurrentDate)
+				.header("If-None-Match", eTag).exchange().expectStatus().isNotModified();
+	}
+
+	@Test
+	public void testConditionalChanges() {
+		String eTag = webTestClient.put().uri("/backlogs/conditional?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseHeaders().getETag();
+
+		String patched = webTestClient.patch().uri("/backlogs/conditional?currentDateTime={now}", validCurrentDate)
+				.header("If-Match", eTag).contentType(MediaType.APPLICATION_JSON).syncBody(deltaJson).exchange()
+				.expectStatus().isOk().expectBody(ProductionCycleResponse.class).returnResult()
+				.getResponseHeaders().getETag();
+
+		// the backlog has changed since the first ETag
+		webTestClient.patch().uri("/backlogs/conditional?currentDateTime={now}", validCurrentDate)
+				.header("If-Match", eTag).contentType(MediaType.APPLICATION_JSON).syncBody(deltaJson).exchange()
+				.expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+		webTestClient.put().uri("/backlogs/conditional?currentDateTime={now}", validCurrentDate)
+				.header("If-Match", eTag).contentType(MediaType.APPLICATION_JSON).syncBody("[]").exchange()
+				.expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+		webTestClient.put().uri("/backlogs/conditional?currentDateTime={now}", validCurrentDate)
+				.header("If-Match", patched).contentType(MediaType.APPLICATION_JSON).syncBody("[]").exchange()
+				.expectStatus().isOk();
+	}
+
+	@Test
+	public void testReplace() {
+		webTestClient.put().uri("/backlogs/replaced?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated();
+		webTestClient.put().uri("/backlogs/replaced?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody("[]").exchange().expectStatus().isOk();
+
+		ProductionCycleResponse response = webTestClient.get()
+				.uri("/backlogs/replaced?currentDateTime={now}", validCurrentDate).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseBody();
+		assertEquals(0, response.getProductionCycle());
+	}
+
+	@Test
+	public void testDelete() {
+		webTestClient.put().uri("/backlogs/deleted?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated();
+
+		webTestClient.delete().uri("/backlogs/deleted").exchange().expectStatus().isNoContent();
+		webTestClient.get().uri("/backlogs/deleted").exchange().expectStatus().isNotFound();
+		webTestClient.delete().uri("/backlogs/deleted").exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testUnknownBacklog() {
+		webTestClient.patch().uri("/backlogs/unknown").contentType(MediaType.APPLICATION_JSON).syncBody(deltaJson)
+				.exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testRunsTooLongToPlan() {
+		// POST /production-cycle leaves such runs out, so a backlog refuses them
+		String tooLong = "[{\"startingDay\": \"2018-01-02T00:00:00.000Z\", \"duration\": 1000}]";
+		webTestClient.put().uri("/backlogs/too-long?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(tooLong).exchange().expectStatus().isBadRequest();
+
+		webTestClient.put().uri("/backlogs/too-long?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isCreated();
+		webTestClient.patch().uri("/backlogs/too-long?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody("{\"add\": " + tooLong + "}").exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testInvalidName() {
+		webTestClient.put().uri("/backlogs/{name}", "not a name").contentType(MediaType.APPLICATION_JSON)
+				.syncBody(inputJson).exchange().expectStatus().isBadRequest();
+	}
+
+}
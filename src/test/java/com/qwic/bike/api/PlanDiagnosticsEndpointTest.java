@@ -0,0 +1,73 @@
+package com.qwic.bike.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlanDiagnostics;
+import com.qwic.bike.service.PlannerService;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"qwic-test-props.diagnostics-sample-rate=1", "qwic-test-props.diagnostics-buffer-size=2" })
+public class PlanDiagnosticsEndpointTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private final ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+	private final ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 4, 0, 0), 7);
+	private final ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+
+	@Autowired
+	private PlannerService plannerService;
+
+	@Autowired
+	private PlanDiagnostics planDiagnostics;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	public void testPlanRendered() {
+		plannerService.maximiseNonClashingRuns(Arrays.asList(a, b, c), validCurrentDate);
+		long id = planDiagnostics.getRecords().get(0).getId();
+
+		Map<String, Object> plan = webTestClient.get().uri("/actuator/plans/{id}", id).exchange().expectStatus()
+				.isOk().expectBody(new ParameterizedTypeReference<Map<String, Object>>() {
+				}).returnResult().getResponseBody();
+
+		assertEquals(2, plan.get("groupCount"));
+		assertEquals(2, ((List<?>) plan.get("groups")).size());
+		assertEquals(2, ((List<?>) plan.get("selected")).size());
+	}
+
+	@Test
+	public void testOldestOverwritten() {
+		plannerService.maximiseNonClashingRuns(Arrays.asList(a), validCurrentDate);
+		long oldest = planDiagnostics.getRecords().get(0).getId();
+		plannerService.maximiseNonClashingRuns(Arrays.asList(b), validCurrentDate);
+		plannerService.maximiseNonClashingRuns(Arrays.asList(c), validCurrentDate);
+
+		assertNull(planDiagnostics.getRecord(oldest));
+		assertEquals(2, planDiagnostics.getRecords().size());
+
+		webTestClient.get().uri("/actuator/plans/{id}", oldest).exchange().expectStatus().isNotFound();
+		webTestClient.get().uri("/actuator/plans").exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.length()").isEqualTo(2).jsonPath("$[0].id").isEqualTo(oldest + 2);
+	}
+
+}
@@ -0,0 +1,331 @@
+package com.qwic.bike.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.qwic.bike.api.response.CapacityResponse;
+import com.qwic.bike.api.response.ClashIndexResponse;
+import com.qwic.bike.api.response.PlanCacheResponse;
+import com.qwic.bike.api.response.ProductionCycleResponse;
+import com.qwic.bike.api.response.ProductionLinesResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class PlannerControllerTest {
+
+	// so that the tests always run, assume that the current date is earlier than
+	// the data.
+	private static final String validCurrentDate = "2018-01-01T00:00:00";
+
+	// json input to be tested
+	private static final String inputJson = "[ " //
+			+ "{ " //
+			+ "\"startingDay\": \"2018-01-02T00:00:00.000Z\", \"duration\": 5 " //
+			+ "}," //
+			+ "{" //
+			+ "\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 7" //
+			+ "}," //
+			+ "{" //
+			+ "\"startingDay\": \"2018-01-15T00:00:00.000Z\", \"duration\": 6" //
+			+ "}," //
+			+ "{" //
+			+ "\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 3" //
+			+ "}" //
+			+ "]";
+
+	// same runs, one per line
+	private static final String inputNdjson = "" //
+			+ "{\"startingDay\": \"2018-01-02T00:00:00.000Z\", \"duration\": 5}\n" //
+			+ "{\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 7}\n" //
+			+ "{\"startingDay\": \"2018-01-15T00:00:00.000Z\", \"duration\": 6}\n" //
+			+ "{\"startingDay\": \"2018-01-09T00:00:00.000Z\", \"duration\": 3}\n";
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	public void testJsonArray() {
+		ProductionCycleResponse response = post(MediaType.APPLICATION_JSON, inputJson);
+
+		assertEquals(3, response.getProductionCycle());
+		// no quantities, so each run is 1 bike
+		assertEquals(3, response.getBikes());
+	}
+
+	@Test
+	public void testNdjson() {
+		assertEquals(3, post(PlannerWebConfiguration.APPLICATION_NDJSON, inputNdjson).getProductionCycle());
+	}
+
+	@Test
+	public void testCount() {
+		ProductionCycleResponse response = webTestClient.post()
+				.uri("/production-cycle/count?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseBody();
+
+		assertEquals(3, response.getProductionCycle());
+	}
+
+	@Test
+	public void testLines() {
+		ProductionLinesResponse response = webTestClient.post()
+				.uri("/production-cycle/lines?lines=2&currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody(ProductionLinesResponse.class).returnResult().getResponseBody();
+
+		// the two runs starting on the 9th go on different lines
+		assertEquals(4, response.getProductionCycle());
+		assertEquals(2, response.getLines());
+		assertEquals(4, response.getRuns().size());
+		assertTrue(response.getRuns().stream().allMatch(run -> run.getLine() == 0 || run.getLine() == 1));
+	}
+
+	@Test
+	public void testCapacity() {
+		CapacityResponse response = webTestClient.post()
+				.uri("/production-cycle/capacity?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody(CapacityResponse.class).returnResult().getResponseBody();
+
+		// B and D both start on the 9th
+		assertEquals(2, response.getPeakDepth());
+		assertEquals(2, response.getMinimumLines());
+		assertEquals(LocalDate.of(2018, 1, 9), response.getPeakDay());
+		assertEquals(6, response.getHistogram().size());
+	}
+
+	@Test
+	public void testAlternatives() {
+		// A, D and C is the only schedule of 3 runs
+		webTestClient.post().uri("/production-cycle/alternatives?limit=5&currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.productionCycle").isEqualTo(3) //
+				.jsonPath("$.schedules.length()").isEqualTo(1) //
+				.jsonPath("$.schedules[0][0]").isEqualTo(0) //
+				.jsonPath("$.schedules[0][1]").isEqualTo(3) //
+				.jsonPath("$.schedules[0][2]").isEqualTo(2);
+
+		webTestClient.post().uri("/production-cycle/alternatives?limit=0&currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isBadRequest();
+
+		// the only schedule is empty
+		webTestClient.post().uri("/production-cycle/alternatives?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody("[]").exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.productionCycle").isEqualTo(0) //
+				.jsonPath("$.schedules.length()").isEqualTo(1) //
+				.jsonPath("$.schedules[0].length()").isEqualTo(0);
+	}
+
+	@Test
+	public void testExplain() {
+		// B is rejected, D blocks it
+		webTestClient.post().uri("/production-cycle?explain=true&currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.productionCycle").isEqualTo(3) //
+				.jsonPath("$.rejectedRuns[0]").isEqualTo(1) //
+				.jsonPath("$.blockingRuns[0]").isEqualTo(3);
+
+		// opt-in only
+		webTestClient.post().uri("/production-cycle?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.rejectedRuns").doesNotExist();
+	}
+
+	@Test
+	public void testEarliestSlots() {
+		// A, D and C are planned, leaving the 7th and 8th, and the 12th to 14th
+		webTestClient.post()
+				.uri("/production-cycle/earliest-slots?duration=2&duration=3&duration=4&currentDateTime={now}",
+						validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$[0].startingDay").isEqualTo("2018-01-07") //
+				.jsonPath("$[1].startingDay").isEqualTo("2018-01-12") //
+				.jsonPath("$[2].duration").isEqualTo(4) //
+				.jsonPath("$[2].startingDay").isEqualTo("2018-01-21");
+
+		webTestClient.post()
+				.uri("/production-cycle/earliest-slots?duration=2&duration=3&after={after}&currentDateTime={now}",
+						"2018-01-12T00:00:00", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$[0].startingDay").isEqualTo("2018-01-13") //
+				.jsonPath("$[1].startingDay").isEqualTo("2018-01-21");
+	}
+
+	@Test
+	public void testClashIndex() {
+		ClashIndexResponse index = webTestClient.post().uri("/production-cycle/clash-index")
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody(ClashIndexResponse.class).returnResult().getResponseBody();
+		assertEquals(4, index.getRuns());
+
+		// from the 10th to the 15th clashes with B, C and D, but not A
+		webTestClient.get()
+				.uri("/production-cycle/clash-index/{id}/clashes?startingDay={day}&duration=6", index.getId(),
+						"2018-01-10T00:00:00")
+				.exchange().expectStatus().isOk().expectBody().jsonPath("$.length()").isEqualTo(3);
+	}
+
+	@Test
+	public void testEvictedClashIndex() {
+		long first = indexRuns().getId();
+		// the default keeps 16
+		for (int i = 0; i < 16; i++) {
+			assertNotEquals(first, indexRuns().getId());
+		}
+
+		webTestClient.get()
+				.uri("/production-cycle/clash-index/{id}/clashes?startingDay={day}&duration=6", first,
+						"2018-01-10T00:00:00")
+				.exchange().expectStatus().isEqualTo(HttpStatus.GONE);
+	}
+
+	@Test
+	public void testUnknownClashIndex() {
+		webTestClient.get()
+				.uri("/production-cycle/clash-index/{id}/clashes?startingDay={day}&duration=6", Long.MAX_VALUE,
+						"2018-01-10T00:00:00")
+				.exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testTooManyLines() {
+		webTestClient.post().uri("/production-cycle/lines?lines=100000&currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus()
+				.isBadRequest();
+	}
+
+	@Test
+	public void testCacheHit() {
+		// a run no other test uses, so the first request misses
+		String json = "[{\"startingDay\": \"2019-03-04T00:00:00.000Z\", \"duration\": 11}]";
+
+		PlanCacheResponse before = getPlanCache();
+		assertEquals(1, post(MediaType.APPLICATION_JSON, json).getProductionCycle());
+		assertEquals(1, post(MediaType.APPLICATION_JSON, json).getProductionCycle());
+		PlanCacheResponse after = getPlanCache();
+
+		assertTrue(after.isEnabled());
+		assertEquals(before.getMissCount() + 1, after.getMissCount());
+		assertEquals(before.getHitCount() + 1, after.getHitCount());
+	}
+
+	@Test
+	public void testPrometheusHistograms() {
+		// meters are registered at startup, so the buckets are there before any request
+		String metrics = webTestClient.get().uri("/actuator/prometheus").exchange().expectStatus().isOk()
+				.expectBody(String.class).returnResult().getResponseBody();
+
+		assertTrue(metrics.contains("planner_stage_seconds_bucket{stage=\"solve\""));
+		assertTrue(metrics.contains("planner_input_runs_bucket"));
+	}
+
+	@Test
+	public void testEmptyArray() {
+		assertEquals(0, post(MediaType.APPLICATION_JSON, "[]").getProductionCycle());
+	}
+
+	@Test
+	public void testStartDaysInPast() {
+		ProductionCycleResponse response = webTestClient.post()
+				.uri("/production-cycle?currentDateTime={now}", "2018-01-15T00:01:00")
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseBody();
+
+		assertEquals(0, response.getProductionCycle());
+	}
+
+	@Test
+	public void testCountThenPlanGiveSameBikes() {
+		// both end on the 4th of March. Only one can be selected, and it must be the
+		// same one whichever endpoint answers first.
+		String json = "[{\"startingDay\": \"2018-03-02T00:00:00.000Z\", \"duration\": 3, \"quantity\": 5}," //
+				+ "{\"startingDay\": \"2018-03-04T00:00:00.000Z\", \"duration\": 1, \"quantity\": 1}]";
+
+		ProductionCycleResponse counted = webTestClient.post()
+				.uri("/production-cycle/count?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(json).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseBody();
+		ProductionCycleResponse planned = post(MediaType.APPLICATION_JSON, json);
+
+		assertEquals(1, counted.getProductionCycle());
+		assertEquals(1, planned.getProductionCycle());
+		assertEquals(counted.getBikes(), planned.getBikes());
+	}
+
+	@Test
+	public void testCountMetrics() {
+		Timer parse = meterRegistry.get("planner.parse").tag("mode", "reactive").timer();
+		Timer solve = meterRegistry.get("planner.stage").tag("stage", "solve").timer();
+
+		long parseCount = parse.count();
+		long solveCount = solve.count();
+
+		// not planned by any other test, so it isn't cached
+		webTestClient.post().uri("/production-cycle/count?currentDateTime={now}", validCurrentDate)
+				.contentType(PlannerWebConfiguration.APPLICATION_NDJSON)
+				.syncBody("{\"startingDay\": \"2018-03-07T00:00:00.000Z\", \"duration\": 11}\n").exchange()
+				.expectStatus().isOk();
+
+		assertEquals(parseCount + 1, parse.count());
+		assertEquals(solveCount + 1, solve.count());
+	}
+
+	@Test
+	public void testMalformedJson() {
+		webTestClient.post().uri("/production-cycle?currentDateTime={now}", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON)
+				.syncBody("[ { \"startingDay\": \"2018-01-03T00:00:00.000Z\", \"duration\": 5 ]").exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testShortDeadline() {
+		webTestClient.post().uri("/production-cycle?currentDateTime={now}&deadlineMillis=5000", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus().isOk();
+	}
+
+	@Test
+	public void testInvalidDeadline() {
+		webTestClient.post().uri("/production-cycle?currentDateTime={now}&deadlineMillis=0", validCurrentDate)
+				.contentType(MediaType.APPLICATION_JSON).syncBody(inputJson).exchange().expectStatus()
+				.isBadRequest();
+	}
+
+	private ClashIndexResponse indexRuns() {
+		return webTestClient.post().uri("/production-cycle/clash-index").contentType(MediaType.APPLICATION_JSON)
+				.syncBody(inputJson).exchange().expectStatus().isOk().expectBody(ClashIndexResponse.class)
+				.returnResult().getResponseBody();
+	}
+
+	private PlanCacheResponse getPlanCache() {
+		return webTestClient.get().uri("/production-cycle/cache").exchange().expectStatus().isOk()
+				.expectBody(PlanCacheResponse.class).returnResult().getResponseBody();
+	}
+
+	private ProductionCycleResponse post(final MediaType contentType, final String body) {
+		return webTestClient.post().uri("/production-cycle?currentDateTime={now}", validCurrentDate)
+				.contentType(contentType).syncBody(body).exchange().expectStatus().isOk()
+				.expectBody(ProductionCycleResponse.class).returnResult().getResponseBody();
+	}
+
+}
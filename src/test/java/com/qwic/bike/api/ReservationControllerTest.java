@@ -0,0 +1,73 @@
+package com.qwic.bike.api;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class ReservationControllerTest {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	public void testReserveThenRelease() {
+		// reservations are live, so they are relative to today
+		String start = LocalDate.now().plusDays(100).atStartOfDay().toString();
+		String clashing = LocalDate.now().plusDays(104).atStartOfDay().toString();
+
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=5", start).exchange().expectStatus()
+				.isCreated().expectBody().jsonPath("$.duration").isEqualTo(5);
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=3", clashing).exchange().expectStatus()
+				.isEqualTo(409);
+
+		webTestClient.delete().uri("/reservations?startingDay={start}&duration=5", start).exchange().expectStatus()
+				.isNoContent();
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=3", clashing).exchange().expectStatus()
+				.isCreated();
+	}
+
+	@Test
+	public void testReleaseOnlyReservedRuns() {
+		String start = LocalDate.now().plusDays(300).atStartOfDay().toString();
+		String inside = LocalDate.now().plusDays(302).atStartOfDay().toString();
+
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=10", start).exchange().expectStatus()
+				.isCreated();
+
+		// a day of the run can't be released on its own, so it can't be reserved twice
+		webTestClient.delete().uri("/reservations?startingDay={start}&duration=1", inside).exchange().expectStatus()
+				.isNotFound();
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=1", inside).exchange().expectStatus()
+				.isEqualTo(409);
+
+		webTestClient.delete().uri("/reservations?startingDay={start}&duration=10", start).exchange().expectStatus()
+				.isNoContent();
+		webTestClient.delete().uri("/reservations?startingDay={start}&duration=10", start).exchange().expectStatus()
+				.isNotFound();
+	}
+
+	@Test
+	public void testInvalidRuns() {
+		String past = LocalDate.now().minusDays(1).atStartOfDay().toString();
+		String future = LocalDate.now().plusDays(200).atStartOfDay().toString();
+
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=5", past).exchange().expectStatus()
+				.isBadRequest();
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=0", future).exchange().expectStatus()
+				.isBadRequest();
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=100000", future).exchange()
+				.expectStatus().isBadRequest();
+		// within the horizon, but too long for a run
+		webTestClient.post().uri("/reservations?startingDay={start}&duration=1000", future).exchange()
+				.expectStatus().isBadRequest();
+	}
+
+}
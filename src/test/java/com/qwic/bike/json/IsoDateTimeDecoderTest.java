@@ -0,0 +1,92 @@
+package com.qwic.bike.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IsoDateTimeDecoderTest {
+
+	private static final DateTimeFormatter LAYOUT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+	@Test
+	public void testDecodeMatchesJavaTime() {
+		final Random random = new Random(42);
+		final IsoDateTimeDecoder decoder = new IsoDateTimeDecoder();
+
+		final long min = LocalDateTime.of(1, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+		final long max = LocalDateTime.of(9999, 12, 31, 23, 59).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+		for (int i = 0; i < 10_000; i++) {
+			final long epochMilli = min + (long) (random.nextDouble() * (max - min));
+			final LocalDateTime expected = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+			final char[] text = expected.format(LAYOUT).toCharArray();
+
+			assertEquals(new String(text), epochMilli, IsoDateTimeDecoder.decodeEpochMilli(text, 0, text.length));
+			assertEquals(new String(text), expected, decoder.decode(text, 0, text.length));
+		}
+	}
+
+	@Test
+	public void testDecodeLeapDays() {
+		assertDecoded("2016-02-29T00:00:00.000Z");
+		assertDecoded("2000-02-29T23:59:59.999Z");
+		assertNotDecoded("2018-02-29T00:00:00.000Z");
+		assertNotDecoded("1900-02-29T00:00:00.000Z");
+	}
+
+	@Test
+	public void testOtherLayoutsNotDecoded() {
+		assertNotDecoded("2018-01-02T00:00:00Z");
+		assertNotDecoded("2018-01-02T00:00:00.000");
+		assertNotDecoded("2018-01-02T00:00:00.000+01");
+		assertNotDecoded("2018-13-02T00:00:00.000Z");
+		assertNotDecoded("2018-01-32T00:00:00.000Z");
+		assertNotDecoded("2018-01-02T24:00:00.000Z");
+		assertNotDecoded("2018-01-02 00:00:00.000Z");
+		assertNotDecoded("2018-0a-02T00:00:00.000Z");
+		assertNotDecoded("");
+	}
+
+	@Test
+	public void testDecodeWithOffset() {
+		final char[] text = "[\"2018-01-02T00:00:00.000Z\"]".toCharArray();
+
+		assertEquals(LocalDateTime.of(2018, 1, 2, 0, 0), new IsoDateTimeDecoder().decode(text, 2, 24));
+	}
+
+	@Test
+	public void testCacheReturnsSameInstance() {
+		final IsoDateTimeDecoder decoder = new IsoDateTimeDecoder();
+
+		final LocalDateTime first = decoder.decode("2018-01-02T00:00:00.000Z".toCharArray(), 0, 24);
+		final LocalDateTime second = decoder.decode("2018-01-02T00:00:00.000Z".toCharArray(), 0, 24);
+
+		assertSame(first, second);
+	}
+
+	@Test
+	public void testParseFallback() {
+		assertEquals(LocalDateTime.of(2018, 1, 2, 10, 0), IsoDateTimeDecoder.parse("2018-01-02T10:00:00Z"));
+		assertEquals(LocalDateTime.of(2018, 1, 2, 10, 0), IsoDateTimeDecoder.parse("2018-01-02T10:00"));
+	}
+
+	private static void assertDecoded(final String text) {
+		final LocalDateTime expected = LocalDateTime.ofInstant(Instant.parse(text), ZoneOffset.UTC);
+		assertEquals(text, expected, new IsoDateTimeDecoder().decode(text.toCharArray(), 0, text.length()));
+	}
+
+	private static void assertNotDecoded(final String text) {
+		assertEquals(text, IsoDateTimeDecoder.NOT_DECODED,
+				IsoDateTimeDecoder.decodeEpochMilli(text.toCharArray(), 0, text.length()));
+		assertNull(text, new IsoDateTimeDecoder().decode(text.toCharArray(), 0, text.length()));
+	}
+
+}
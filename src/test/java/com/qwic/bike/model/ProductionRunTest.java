@@ -0,0 +1,87 @@
+package com.qwic.bike.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ProductionRunTest {
+
+	private static final LocalDateTime start = LocalDateTime.of(2018, 1, 2, 10, 30);
+
+	@Test
+	public void testPrecomputedEnd() {
+		ProductionRun run = new ProductionRun(start, 5, 3);
+
+		assertEquals(LocalDateTime.of(2018, 1, 6, 10, 30), run.getEndDateTime());
+		assertEquals(start.toLocalDate().toEpochDay(), run.getStartDay());
+		assertEquals(run.getStartDay() + 4, run.getEndDay());
+		assertEquals(start.toLocalTime().toNanoOfDay(), run.getStartNanoOfDay());
+	}
+
+	@Test
+	public void testMissingStart() {
+		ProductionRun run = new ProductionRun(null, 5);
+		ProductionRun epoch = new ProductionRun(LocalDateTime.of(1970, 1, 1, 0, 0), 5);
+
+		assertNull(run.getEndDateTime());
+		assertNotEquals(run, epoch);
+		assertTrue(run.compareTo(epoch) < 0);
+		assertTrue(epoch.compareTo(run) > 0);
+	}
+
+	@Test
+	public void testDataBinding() throws Exception {
+		ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+		ProductionRun run = mapper.readValue("{\"startingDay\":\"2018-01-02T10:30:00\",\"duration\":5}",
+				ProductionRun.class);
+		assertEquals(new ProductionRun(start, 5, 1), run);
+
+		run = mapper.readValue("{\"startingDay\":\"2018-01-02T10:30:00\",\"duration\":5,\"quantity\":7}",
+				ProductionRun.class);
+		assertEquals(new ProductionRun(start, 5, 7), run);
+
+		String json = mapper.writeValueAsString(run);
+		assertFalse(json, json.contains("startDay"));
+		assertEquals(run, mapper.readValue(json, ProductionRun.class));
+	}
+
+	/**
+	 * The primitive comparator orders like end, start, then quantity as dates,
+	 * and is consistent with equals and hashCode
+	 */
+	@Test
+	public void testComparatorMatchesDateOrder() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			ProductionRun a = randomRun(random);
+			ProductionRun b = randomRun(random);
+
+			int expected = a.getEndDateTime().compareTo(b.getEndDateTime());
+			if (expected == 0)
+				expected = a.getStartDateTime().compareTo(b.getStartDateTime());
+			if (expected == 0)
+				expected = Long.compare(a.getQuantity(), b.getQuantity());
+
+			assertEquals(a + " " + b, Integer.signum(expected), Integer.signum(a.compareTo(b)));
+			assertEquals(expected == 0, a.equals(b));
+			if (expected == 0)
+				assertEquals(a.hashCode(), b.hashCode());
+		}
+	}
+
+	private static ProductionRun randomRun(final Random random) {
+		return new ProductionRun(start.plusDays(random.nextInt(4)).withHour(random.nextInt(2)), 1 + random.nextInt(4),
+				1 + random.nextInt(2));
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+
+public class CapacityAnalyserTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+
+		CapacityReport report = analyse(Arrays.asList(a, b, c, d));
+
+		assertEquals(2, report.getPeakDepth());
+		assertEquals(2, report.getMinimumLines());
+		assertEquals(LocalDate.of(2018, 1, 9), report.getPeakDay());
+
+		// A, a gap, B and D, B, B and C, then C
+		assertSegment(report, 0, LocalDate.of(2018, 1, 2), LocalDate.of(2018, 1, 6), 1);
+		assertSegment(report, 1, LocalDate.of(2018, 1, 7), LocalDate.of(2018, 1, 8), 0);
+		assertSegment(report, 2, LocalDate.of(2018, 1, 9), LocalDate.of(2018, 1, 11), 2);
+		assertSegment(report, 3, LocalDate.of(2018, 1, 12), LocalDate.of(2018, 1, 14), 1);
+		assertSegment(report, 4, LocalDate.of(2018, 1, 15), LocalDate.of(2018, 1, 15), 2);
+		assertSegment(report, 5, LocalDate.of(2018, 1, 16), LocalDate.of(2018, 1, 20), 1);
+		assertEquals(6, report.getSegmentCount());
+	}
+
+	@Test
+	public void testHistogramMatchesEachDay() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			List<ProductionRun> runs = createRandomRuns(100);
+			CapacityReport report = analyse(runs);
+
+			int peak = 0;
+			for (int segment = 0; segment < report.getSegmentCount(); segment++) {
+				for (LocalDate day = report.getSegmentFrom(segment); !day
+						.isAfter(report.getSegmentTo(segment)); day = day.plusDays(1)) {
+					int onDay = getRunsOnDay(runs, day);
+					assertEquals(onDay, report.getSegmentOccupancy(segment));
+					peak = Math.max(peak, onDay);
+				}
+			}
+
+			assertEquals(peak, report.getPeakDepth());
+			assertEquals(peak, getRunsOnDay(runs, report.getPeakDay()));
+		}
+	}
+
+	@Test
+	public void testMinimumLinesFitEveryRun() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns columns = RunColumns.of(createRandomRuns(100));
+			int lines = analyse(columns).getMinimumLines();
+
+			assertEquals(100, MultiLinePlanner.plan(columns, validCurrentDate, maxRunDuration, lines)
+					.getSelectedCount());
+			// one line fewer can't fit the runs on the peak day
+			assertTrue(MultiLinePlanner.plan(columns, validCurrentDate, maxRunDuration, lines - 1)
+					.getSelectedCount() < 100);
+		}
+	}
+
+	@Test
+	public void testEmptyInput() {
+		CapacityReport report = analyse(new ArrayList<>());
+
+		assertEquals(0, report.getPeakDepth());
+		assertNull(report.getPeakDay());
+		assertEquals(0, report.getSegmentCount());
+	}
+
+	@Test
+	public void testInvalidDurationsIgnored() {
+		LocalDateTime start = LocalDateTime.of(2018, 1, 2, 0, 0);
+
+		CapacityReport report = analyse(Arrays.asList(new ProductionRun(start, -5), new ProductionRun(start, 0),
+				new ProductionRun(start, maxRunDuration), new ProductionRun(start, 3)));
+
+		assertEquals(1, report.getPeakDepth());
+		assertSegment(report, 0, LocalDate.of(2018, 1, 2), LocalDate.of(2018, 1, 4), 1);
+		assertEquals(1, report.getSegmentCount());
+	}
+
+	private CapacityReport analyse(final List<ProductionRun> runs) {
+		return analyse(RunColumns.of(runs));
+	}
+
+	private CapacityReport analyse(final RunColumns runs) {
+		return CapacityAnalyser.analyse(runs, validCurrentDate, maxRunDuration);
+	}
+
+	private List<ProductionRun> createRandomRuns(final int count) {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(count)), 1 + random.nextInt(20)));
+		}
+		return runs;
+	}
+
+	private static int getRunsOnDay(final List<ProductionRun> runs, final LocalDate day) {
+		int onDay = 0;
+		for (final ProductionRun run : runs) {
+			if (!run.getStartDateTime().toLocalDate().isAfter(day)
+					&& !run.getEndDateTime().toLocalDate().isBefore(day)) {
+				onDay++;
+			}
+		}
+		return onDay;
+	}
+
+	private static void assertSegment(final CapacityReport report, final int segment, final LocalDate from,
+			final LocalDate to, final int occupancy) {
+		assertEquals(from, report.getSegmentFrom(segment));
+		assertEquals(to, report.getSegmentTo(segment));
+		assertEquals(occupancy, report.getSegmentOccupancy(segment));
+	}
+
+}
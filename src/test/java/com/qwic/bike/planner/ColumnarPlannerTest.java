@@ -0,0 +1,370 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+public class ColumnarPlannerTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private final SchedulingStrategy greedy = new GreedyEndDateStrategy();
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testReadmeExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+
+		RunColumns columns = RunColumns.of(Arrays.asList(a, b, c, d));
+
+		PlanResult plan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy);
+
+		// indices map back to the input: A, D and C, sorted by end date
+		assertArrayEquals(new int[] { 0, 3, 2 }, plan.getSelectedRuns());
+		assertEquals(Arrays.asList(a, d, c), plan.getSelectedProductionRuns());
+		assertSame(a, plan.getSelectedProductionRuns().get(0));
+	}
+
+	@Test
+	public void testInvalidRunsRemoved() {
+		List<ProductionRun> runs = Arrays.asList( //
+				new ProductionRun(validCurrentDate, 2), //
+				new ProductionRun(validCurrentDate.plusNanos(1), 2), //
+				new ProductionRun(validCurrentDate.minusDays(1), 2));
+
+		RunColumns columns = RunColumns.of(runs);
+
+		// start must be after the current date time
+		assertArrayEquals(new int[] { 1 },
+				ColumnarPlanner.removeInvalidRuns(columns, validCurrentDate, maxRunDuration));
+	}
+
+	@Test
+	public void testInvalidDurationsRemoved() {
+		LocalDateTime start = validCurrentDate.plusDays(1);
+		List<ProductionRun> runs = Arrays.asList( //
+				new ProductionRun(start, -5), //
+				new ProductionRun(start, 0), //
+				new ProductionRun(start, maxRunDuration), //
+				new ProductionRun(start, maxRunDuration - 1));
+
+		RunColumns columns = RunColumns.of(runs);
+
+		// duration must be from 1 to less than the maximum
+		assertArrayEquals(new int[] { 3 },
+				ColumnarPlanner.removeInvalidRuns(columns, validCurrentDate, maxRunDuration));
+		assertEquals(1, ColumnarPlanner.countNonClashingRuns(columns, validCurrentDate, maxRunDuration));
+		// the gaps before and after the valid run
+		assertEquals(2, GapIndex.of(ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy))
+				.getGapCount());
+	}
+
+	@Test
+	public void testEmptyInput() {
+		PlanResult plan = ColumnarPlanner.plan(RunColumns.of(new ArrayList<>()), validCurrentDate, maxRunDuration,
+				greedy);
+
+		assertEquals(0, plan.getSelectedCount());
+		assertEquals(0, plan.getGroupCount());
+	}
+
+	@Test(expected = CancellationException.class)
+	public void testInterruptCancels() {
+		List<ProductionRun> runs = Arrays.asList(new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5));
+
+		Thread.currentThread().interrupt();
+		try {
+			ColumnarPlanner.plan(RunColumns.of(runs), validCurrentDate, maxRunDuration, greedy);
+		} finally {
+			// clear the flag, so later tests aren't interrupted
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	public void testRandomRunsAreOptimal() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			List<ProductionRun> runs = createRandomRuns(200);
+
+			PlanResult plan = ColumnarPlanner.plan(RunColumns.of(runs), validCurrentDate, maxRunDuration, greedy);
+			List<ProductionRun> selected = plan.getSelectedProductionRuns();
+
+			// no clashes in the answer
+			for (int i = 0; i < selected.size(); i++) {
+				for (int j = i + 1; j < selected.size(); j++) {
+					assertFalse(PlannerService.isClash(selected.get(i), selected.get(j)));
+				}
+			}
+
+			assertEquals(getOptimalCount(runs), plan.getSelectedCount());
+		}
+	}
+
+	@Test
+	public void testReferenceStrategyGivesSameAnswer() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns columns = RunColumns.of(createRandomRuns(200));
+
+			PlanResult greedyPlan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy);
+			PlanResult referencePlan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration,
+					new ReferenceStrategy());
+
+			// of runs that end on the same day, the reference takes the earliest
+			// start and greedy the latest, so only the counts are the same
+			assertEquals(referencePlan.getSelectedCount(), greedyPlan.getSelectedCount());
+		}
+	}
+
+	@Test
+	public void testLongRunJoinsEarlierGroup() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 2);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 6, 0, 0), 2);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 10, 0, 0), 2);
+		// ends last, but clashes with A and B
+		ProductionRun longRun = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 20);
+		ProductionRun later = new ProductionRun(LocalDateTime.of(2018, 2, 1, 0, 0), 2);
+
+		RunColumns columns = RunColumns.of(Arrays.asList(a, b, c, longRun, later));
+		int[] sorted = ColumnarPlanner.removeInvalidRuns(columns, validCurrentDate, maxRunDuration);
+		ColumnarPlanner.sortByEndDate(columns, sorted);
+
+		// [A, B, C, long run], [later]
+		assertArrayEquals(new int[] { 0, 4, 5 }, ColumnarPlanner.getClashGroups(columns, sorted));
+	}
+
+	@Test
+	public void testRandomGroupsAreConnected() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns columns = RunColumns.of(createRandomRuns(200));
+			int[] sorted = ColumnarPlanner.removeInvalidRuns(columns, validCurrentDate, maxRunDuration);
+			ColumnarPlanner.sortByEndDate(columns, sorted);
+
+			int[] groupOffsets = ColumnarPlanner.getClashGroups(columns, sorted);
+			int[] groupOf = new int[columns.size()];
+			for (int g = 0; g + 1 < groupOffsets.length; g++) {
+				for (int i = groupOffsets[g]; i < groupOffsets[g + 1]; i++) {
+					groupOf[sorted[i]] = g;
+				}
+			}
+
+			// runs of different groups never clash
+			for (int i = 0; i < sorted.length; i++) {
+				for (int j = i + 1; j < sorted.length; j++) {
+					if (clashes(columns, sorted[i], sorted[j])) {
+						assertEquals(groupOf[sorted[i]], groupOf[sorted[j]]);
+					}
+				}
+			}
+
+			// and a group can't be split, some later run of the group clashes with an
+			// earlier run
+			for (int g = 0; g + 1 < groupOffsets.length; g++) {
+				for (int split = groupOffsets[g] + 1; split < groupOffsets[g + 1]; split++) {
+					boolean joined = false;
+					for (int i = groupOffsets[g]; i < split; i++) {
+						for (int j = split; j < groupOffsets[g + 1]; j++) {
+							joined |= clashes(columns, sorted[i], sorted[j]);
+						}
+					}
+					assertTrue(joined);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPresolveRemovesDuplicatesAndContainingRuns() {
+		ProductionRun inner = new ProductionRun(LocalDateTime.of(2018, 1, 5, 0, 0), 2);
+		ProductionRun duplicate = new ProductionRun(LocalDateTime.of(2018, 1, 5, 0, 0), 2);
+		ProductionRun sameStart = new ProductionRun(LocalDateTime.of(2018, 1, 5, 0, 0), 4);
+		ProductionRun sameEnd = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 4);
+		ProductionRun outer = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 10);
+		ProductionRun later = new ProductionRun(LocalDateTime.of(2018, 1, 6, 0, 0), 2);
+
+		RunColumns columns = RunColumns.of(Arrays.asList(outer, sameEnd, inner, later, duplicate, sameStart));
+		int[] sorted = ColumnarPlanner.removeInvalidRuns(columns, validCurrentDate, maxRunDuration);
+		ColumnarPlanner.sortByEndDate(columns, sorted);
+
+		// one of the duplicates, and the later run, which clashes but isn't contained
+		int[] kept = ColumnarPlanner.presolve(columns, sorted);
+		assertEquals(2, kept.length);
+		assertEquals(inner, columns.getRun(kept[0]));
+		assertSame(later, columns.getRun(kept[1]));
+
+		PlanResult plan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, null, true);
+		assertEquals(4, plan.getPresolvedCount());
+		assertEquals(1, plan.getSelectedCount());
+	}
+
+	@Test
+	public void testPresolveGivesSameRuns() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			List<ProductionRun> runs = new ArrayList<>();
+			for (ProductionRun run : createRandomRuns(200)) {
+				runs.add(new ProductionRun(run.getStartDateTime(), run.getDurationDays(), 1 + random.nextInt(5)));
+			}
+			RunColumns columns = RunColumns.of(runs);
+
+			PlanResult plan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, null, false);
+			PlanResult presolved = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, null,
+					true);
+			PlanTotals counted = ColumnarPlanner.totalNonClashingRuns(columns, validCurrentDate, maxRunDuration);
+
+			// greedy and the count pass take the run presolve keeps, so the bikes match
+			assertArrayEquals(plan.getSelectedRuns(), presolved.getSelectedRuns());
+			assertEquals(plan.getSelectedQuantity(), counted.getBikes());
+			assertEquals(plan.getSelectedCount(), counted.getRuns());
+			assertEquals(0, plan.getPresolvedCount());
+			assertTrue(presolved.getPresolvedCount() > 0);
+			assertEquals(plan.getInvalidCount(), presolved.getInvalidCount());
+		}
+	}
+
+	@Test
+	public void testPresolveIgnoredWhenWeighted() {
+		ProductionRun heavy = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 10, 100);
+		ProductionRun inner = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 2, 1);
+
+		PlanResult plan = ColumnarPlanner.plan(RunColumns.of(Arrays.asList(heavy, inner)), validCurrentDate,
+				maxRunDuration, new WeightedStrategy(), null, true);
+
+		assertEquals(0, plan.getPresolvedCount());
+		assertEquals(Arrays.asList(heavy), plan.getSelectedProductionRuns());
+	}
+
+	@Test
+	public void testExplainReadmeExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+
+		PlanResult plan = ColumnarPlanner.plan(RunColumns.of(Arrays.asList(a, b, c, d)), validCurrentDate,
+				maxRunDuration, greedy, null, true, true);
+
+		// B is blocked by D, the last run selected before it
+		assertArrayEquals(new int[] { 1 }, plan.getRejectedRuns());
+		assertArrayEquals(new int[] { 3 }, plan.getBlockingRuns());
+		assertFalse(ColumnarPlanner.plan(RunColumns.of(Arrays.asList(a, b)), validCurrentDate, maxRunDuration, greedy)
+				.isExplained());
+	}
+
+	@Test
+	public void testEveryRejectedRunIsExplained() {
+		for (SchedulingStrategy strategy : Arrays.asList(greedy, new ReferenceStrategy(), new WeightedStrategy())) {
+			for (int attempt = 0; attempt < 20; attempt++) {
+				RunColumns columns = RunColumns.of(createRandomRuns(200));
+
+				// presolve is ignored when explaining
+				PlanResult plan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, strategy, null,
+						true, true);
+				assertEquals(0, plan.getPresolvedCount());
+				assertArrayEquals(
+						ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, strategy).getSelectedRuns(),
+						plan.getSelectedRuns());
+				assertExplained(columns, plan);
+			}
+		}
+	}
+
+	@Test
+	public void testExplainRunWithoutBlocker() {
+		ProductionRun heavy = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5, 10);
+		ProductionRun empty = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 2, 0);
+
+		// the empty run adds no bikes, so it is skipped, though nothing clashes
+		PlanResult plan = ColumnarPlanner.plan(RunColumns.of(Arrays.asList(heavy, empty)), validCurrentDate,
+				maxRunDuration, new WeightedStrategy(), null, false, true);
+
+		assertArrayEquals(new int[] { 0 }, plan.getSelectedRuns());
+		assertArrayEquals(new int[] { 1 }, plan.getRejectedRuns());
+		assertArrayEquals(new int[] { -1 }, plan.getBlockingRuns());
+	}
+
+	/**
+	 * Each valid run is either selected, or rejected and blocked by a selected
+	 * run that clashes with it, or -1 if none does
+	 */
+	static void assertExplained(final RunColumns columns, final PlanResult plan) {
+		int[] rejected = plan.getRejectedRuns();
+		int[] blocking = plan.getBlockingRuns();
+		assertEquals(rejected.length, blocking.length);
+		assertEquals(columns.size() - plan.getInvalidCount(), plan.getSelectedCount() + rejected.length);
+
+		int[] selected = plan.getSelectedRuns().clone();
+		Arrays.sort(selected);
+		for (int i = 0; i < rejected.length; i++) {
+			assertTrue(Arrays.binarySearch(selected, rejected[i]) < 0);
+			if (blocking[i] < 0) {
+				for (int run : selected) {
+					assertFalse(clashes(columns, rejected[i], run));
+				}
+			} else {
+				assertTrue(Arrays.binarySearch(selected, blocking[i]) >= 0);
+				assertTrue(clashes(columns, rejected[i], blocking[i]));
+			}
+		}
+	}
+
+	private static boolean clashes(final RunColumns runs, final int i, final int j) {
+		return runs.getStartDay(i) <= runs.getEndDay(j) && runs.getStartDay(j) <= runs.getEndDay(i);
+	}
+
+	private List<ProductionRun> createRandomRuns(final int count) {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(count)), 1 + random.nextInt(20)));
+		}
+		return runs;
+	}
+
+	/**
+	 * Quadratic dynamic programming answer, to check the planner against
+	 */
+	private static int getOptimalCount(final List<ProductionRun> runs) {
+		final List<ProductionRun> sorted = new ArrayList<>(runs);
+		sorted.sort(ProductionRun.COMPARATOR);
+
+		// best[i] is the largest number of non-clashing runs that ends with run i
+		final int[] best = new int[sorted.size()];
+		int answer = 0;
+		for (int i = 0; i < sorted.size(); i++) {
+			best[i] = 1;
+			for (int j = 0; j < i; j++) {
+				if (sorted.get(j).getEndDateTime().isBefore(sorted.get(i).getStartDateTime())) {
+					best[i] = Math.max(best[i], best[j] + 1);
+				}
+			}
+			answer = Math.max(answer, best[i]);
+		}
+		return answer;
+	}
+
+}
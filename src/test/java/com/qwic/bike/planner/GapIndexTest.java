@@ -0,0 +1,100 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GapIndexTest {
+
+	@Test
+	public void testGaps() {
+		// days 10-14, 15-16 and 20-29: no gap between the first two
+		RunColumns runs = new RunColumns.Builder().add(20, 0, 10).add(10, 0, 5).add(15, 0, 2).build();
+		GapIndex gaps = GapIndex.of(runs, new int[] { 0, 1, 2 });
+
+		assertEquals(3, gaps.getGapCount());
+		assertEquals(0, gaps.earliestStart(0, 10));
+		assertEquals(30, gaps.earliestStart(0, 11));
+		assertEquals(17, gaps.earliestStart(12, 3));
+		assertEquals(18, gaps.earliestStart(18, 2));
+		assertEquals(30, gaps.earliestStart(18, 3));
+		assertEquals(100, gaps.earliestStart(100, 1000));
+	}
+
+	@Test
+	public void testEmptySchedule() {
+		GapIndex gaps = GapIndex.of(new RunColumns.Builder().build(), new int[0]);
+
+		assertEquals(-5, gaps.earliestStart(-5, 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testClashingSchedule() {
+		RunColumns runs = new RunColumns.Builder().add(10, 0, 5).add(14, 0, 2).build();
+		GapIndex.of(runs, new int[] { 0, 1 });
+	}
+
+	@Test
+	public void testBatch() {
+		RunColumns runs = new RunColumns.Builder().add(10, 0, 5).build();
+		GapIndex gaps = GapIndex.of(runs, new int[] { 0 });
+
+		// days 10-14 are taken
+		assertArrayEquals(new long[] { 5, 15, 15 },
+				gaps.earliestStarts(new long[] { 5, 5, 12 }, new long[] { 5, 6, 1 }));
+	}
+
+	/**
+	 * Compare to checking each day of a random schedule
+	 */
+	@Test
+	public void testRandomMatchesScan() {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			boolean[] occupied = new boolean[400];
+			RunColumns.Builder builder = new RunColumns.Builder();
+			int day = random.nextInt(10);
+			while (day < 350) {
+				int duration = 1 + random.nextInt(20);
+				builder.add(day, 0, duration);
+				for (int d = day; d < day + duration; d++) {
+					occupied[d] = true;
+				}
+				day += duration + random.nextInt(3) * random.nextInt(10);
+			}
+			RunColumns runs = builder.build();
+			int[] schedule = new int[runs.size()];
+			for (int i = 0; i < schedule.length; i++) {
+				schedule[i] = schedule.length - 1 - i;
+			}
+			GapIndex gaps = GapIndex.of(runs, schedule);
+
+			for (int query = 0; query < 50; query++) {
+				long from = random.nextInt(380);
+				long duration = 1 + random.nextInt(15);
+				assertEquals("From " + from + " for " + duration, scan(occupied, from, duration),
+						gaps.earliestStart(from, duration));
+			}
+		}
+	}
+
+	private static long scan(final boolean[] occupied, final long from, final long duration) {
+		long start = from;
+		while (true) {
+			boolean free = true;
+			for (long d = start; d < start + duration; d++) {
+				if (d < occupied.length && occupied[(int) d]) {
+					free = false;
+					break;
+				}
+			}
+			if (free)
+				return start;
+			start++;
+		}
+	}
+
+}
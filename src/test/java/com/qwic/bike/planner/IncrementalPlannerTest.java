@@ -0,0 +1,167 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+public class IncrementalPlannerTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+
+		IncrementalPlanner planner = new IncrementalPlanner(Arrays.asList(a, b, c));
+		// B clashes with C
+		assertEquals(Arrays.asList(a, b), planner.getSelectedRuns());
+
+		// D ends before B, so C is taken instead of B
+		planner.addRun(d);
+		assertEquals(Arrays.asList(a, d, c), planner.getSelectedRuns());
+
+		assertTrue(planner.removeRun(d));
+		assertEquals(Arrays.asList(a, b), planner.getSelectedRuns());
+	}
+
+	@Test
+	public void testRandomChangesMatchFullRecompute() {
+		IncrementalPlanner planner = new IncrementalPlanner();
+		List<ProductionRun> backlog = new ArrayList<>();
+
+		for (int change = 0; change < 2000; change++) {
+			if (backlog.isEmpty() || random.nextInt(3) > 0) {
+				ProductionRun run = createRandomRun(300);
+				backlog.add(run);
+				planner.addRun(run);
+			} else {
+				ProductionRun run = backlog.remove(random.nextInt(backlog.size()));
+				assertTrue(planner.removeRun(run));
+			}
+
+			PlanTotals recomputed = ColumnarPlanner.totalNonClashingRuns(RunColumns.of(backlog), validCurrentDate,
+					maxRunDuration);
+			assertEquals(recomputed.getRuns(), planner.getSelectedCount());
+			assertEquals(recomputed.getBikes(), planner.getSelectedQuantity());
+			assertEquals(backlog.size(), planner.size());
+		}
+
+		assertNoClashes(planner.getSelectedRuns());
+		assertEquals(planner.getSelectedRuns().stream().mapToLong(ProductionRun::getQuantity).sum(),
+				planner.getSelectedQuantity());
+	}
+
+	@Test
+	public void testLateRunOnlyRepairsTheEnd() {
+		List<ProductionRun> backlog = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			backlog.add(createRandomRun(1000));
+		}
+		IncrementalPlanner planner = new IncrementalPlanner(backlog);
+		int count = planner.getSelectedCount();
+
+		// ends after every other run, so nothing after it needs repairing
+		planner.addRun(new ProductionRun(validCurrentDate.plusDays(2000), 1));
+
+		assertEquals(count + 1, planner.getSelectedCount());
+		assertEquals(0, planner.getLastRepairSize());
+	}
+
+	@Test
+	public void testDuplicateRuns() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun later = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 2);
+
+		ProductionRun copy = new ProductionRun(a.getStartDateTime(), 5);
+
+		IncrementalPlanner planner = new IncrementalPlanner(Arrays.asList(a, copy, later));
+		assertEquals(2, planner.getSelectedCount());
+
+		// the copy is not selected, removing either keeps the same count
+		assertTrue(planner.removeRun(a));
+		assertEquals(2, planner.getSelectedCount());
+		assertTrue(planner.removeRun(a));
+		assertEquals(1, planner.getSelectedCount());
+		assertFalse(planner.removeRun(a));
+	}
+
+	@Test
+	public void testRemoveStartedRuns() {
+		List<ProductionRun> backlog = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			backlog.add(createRandomRun(300));
+		}
+		IncrementalPlanner planner = new IncrementalPlanner(backlog);
+		LocalDateTime later = validCurrentDate.plusDays(100);
+
+		int removed = planner.removeRunsStartingUpTo(later);
+
+		PlanTotals recomputed = ColumnarPlanner.totalNonClashingRuns(RunColumns.of(backlog), later, maxRunDuration);
+		assertEquals(backlog.size() - removed, planner.size());
+		assertEquals(recomputed.getRuns(), planner.getSelectedCount());
+	}
+
+	@Test
+	public void testLeaveOutStartedRuns() {
+		List<ProductionRun> backlog = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			backlog.add(createRandomRun(300));
+		}
+		IncrementalPlanner planner = new IncrementalPlanner(backlog);
+		LocalDateTime later = validCurrentDate.plusDays(100);
+
+		PlanTotals view = planner.getTotalsStartingAfter(later);
+		int started = planner.countRunsStartingUpTo(later);
+
+		// nothing is removed
+		assertEquals(backlog.size(), planner.size());
+
+		assertEquals(started, planner.removeRunsStartingUpTo(later));
+		assertEquals(planner.getSelectedCount(), view.getRuns());
+		assertEquals(planner.getSelectedQuantity(), view.getBikes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRun() {
+		new IncrementalPlanner().addRun(new ProductionRun(validCurrentDate, 0));
+	}
+
+	private ProductionRun createRandomRun(final int days) {
+		return new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(days)), 1 + random.nextInt(20),
+				1 + random.nextInt(5));
+	}
+
+	private static void assertNoClashes(final List<ProductionRun> runs) {
+		for (int i = 0; i < runs.size(); i++) {
+			for (int j = i + 1; j < runs.size(); j++) {
+				assertFalse(PlannerService.isClash(runs.get(i), runs.get(j)));
+			}
+		}
+	}
+
+}
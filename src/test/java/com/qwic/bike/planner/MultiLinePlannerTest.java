@@ -0,0 +1,170 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+public class MultiLinePlannerTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testOneLineMatchesGreedy() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns columns = RunColumns.of(createRandomRuns(200));
+
+			PlanResult greedyPlan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration,
+					new GreedyEndDateStrategy());
+
+			assertEquals(greedyPlan.getSelectedCount(), plan(columns, 1).getSelectedCount());
+		}
+	}
+
+	@Test
+	public void testTwoLinesTakeClashingRuns() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 5);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 4, 0, 0), 5);
+		RunColumns columns = RunColumns.of(Arrays.asList(a, b, c));
+
+		assertEquals(1, plan(columns, 1).getSelectedCount());
+
+		LinePlan plan = plan(columns, 2);
+		assertEquals(2, plan.getSelectedCount());
+		assertTrue(plan.getLine(0) != plan.getLine(1));
+
+		assertEquals(3, plan(columns, 3).getSelectedCount());
+	}
+
+	@Test
+	public void testLatestFreeLineIsUsed() {
+		// a short run frees line 0 early, a long run keeps line 1 busy
+		ProductionRun shortRun = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 1);
+		ProductionRun longRun = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 4);
+		// fits after either, so it goes after the long run
+		ProductionRun late = new ProductionRun(LocalDateTime.of(2018, 1, 7, 0, 0), 3);
+		// only fits after the short run
+		ProductionRun early = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 7);
+
+		LinePlan plan = plan(RunColumns.of(Arrays.asList(shortRun, longRun, late, early)), 2);
+
+		assertEquals(4, plan.getSelectedCount());
+	}
+
+	@Test
+	public void testRandomRunsAreOptimal() {
+		for (int attempt = 0; attempt < 50; attempt++) {
+			List<ProductionRun> runs = createRandomRuns(12);
+			RunColumns columns = RunColumns.of(runs);
+
+			for (int lineCount = 1; lineCount <= 3; lineCount++) {
+				LinePlan plan = plan(columns, lineCount);
+
+				assertNoClashesOnALine(plan);
+				assertEquals(getOptimalCount(runs, lineCount), plan.getSelectedCount());
+			}
+		}
+	}
+
+	@Test
+	public void testQuantities() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5, 10);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 5, 20);
+
+		LinePlan plan = plan(RunColumns.of(Arrays.asList(a, b)), 2);
+
+		assertEquals(2, plan.getTotals().getRuns());
+		assertEquals(30, plan.getTotals().getBikes());
+	}
+
+	@Test
+	public void testEmptyInput() {
+		assertEquals(0, plan(RunColumns.of(new ArrayList<>()), 4).getSelectedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoLines() {
+		plan(RunColumns.of(createRandomRuns(10)), 0);
+	}
+
+	private LinePlan plan(final RunColumns runs, final int lineCount) {
+		return MultiLinePlanner.plan(runs, validCurrentDate, maxRunDuration, lineCount);
+	}
+
+	private List<ProductionRun> createRandomRuns(final int count) {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(count)), 1 + random.nextInt(8)));
+		}
+		return runs;
+	}
+
+	private static void assertNoClashesOnALine(final LinePlan plan) {
+		for (int i = 0; i < plan.getSelectedCount(); i++) {
+			assertTrue(plan.getLine(i) >= 0 && plan.getLine(i) < plan.getLineCount());
+			for (int j = i + 1; j < plan.getSelectedCount(); j++) {
+				if (plan.getLine(i) == plan.getLine(j)) {
+					assertFalse(PlannerService.isClash(plan.getRuns().getRun(plan.getSelectedRun(i)),
+							plan.getRuns().getRun(plan.getSelectedRun(j))));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Brute force answer, to check the planner against. Runs fit on the lines if
+	 * no day has more runs than lines.
+	 */
+	private static int getOptimalCount(final List<ProductionRun> runs, final int lineCount) {
+		int best = 0;
+		for (int subset = 0; subset < 1 << runs.size(); subset++) {
+			final int size = Integer.bitCount(subset);
+			if (size > best && getMostRunsOnADay(runs, subset) <= lineCount) {
+				best = size;
+			}
+		}
+		return best;
+	}
+
+	private static int getMostRunsOnADay(final List<ProductionRun> runs, final int subset) {
+		int most = 0;
+		for (int i = 0; i < runs.size(); i++) {
+			if ((subset & 1 << i) == 0)
+				continue;
+			// the busiest day is a start day
+			final LocalDateTime day = runs.get(i).getStartDateTime();
+			int onDay = 0;
+			for (int j = 0; j < runs.size(); j++) {
+				if ((subset & 1 << j) != 0 && !runs.get(j).getStartDateTime().isAfter(day)
+						&& !runs.get(j).getEndDateTime().isBefore(day)) {
+					onDay++;
+				}
+			}
+			most = Math.max(most, onDay);
+		}
+		return most;
+	}
+
+}
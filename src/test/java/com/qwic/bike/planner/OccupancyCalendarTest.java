@@ -0,0 +1,182 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+public class OccupancyCalendarTest {
+
+	private static final long origin = LocalDate.of(2018, 1, 1).toEpochDay();
+
+	@Test
+	public void testReserveAndClash() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 100);
+
+		assertTrue(calendar.tryReserve(origin + 1, 5));
+		// shares the last day
+		assertFalse(calendar.tryReserve(origin + 5, 3));
+		// starts the day after
+		assertTrue(calendar.tryReserve(origin + 6, 3));
+
+		assertFalse(calendar.isReserved(origin));
+		assertTrue(calendar.isReserved(origin + 1));
+		assertTrue(calendar.isReserved(origin + 8));
+		assertFalse(calendar.isReserved(origin + 9));
+	}
+
+	@Test
+	public void testRefusedRunIsRolledBack() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 200);
+		assertTrue(calendar.tryReserve(origin + 90, 1));
+
+		// spans several words, the last of which has a reserved day
+		assertFalse(calendar.tryReserve(origin + 10, 81));
+		for (long day = origin + 10; day < origin + 90; day++) {
+			assertFalse("Day " + (day - origin), calendar.isReserved(day));
+		}
+		assertTrue(calendar.tryReserve(origin + 10, 80));
+	}
+
+	@Test
+	public void testRelease() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 100);
+		assertTrue(calendar.tryReserve(origin + 20, 30));
+
+		assertTrue(calendar.release(origin + 20, 30));
+
+		assertFalse(calendar.isReserved(origin + 20));
+		assertTrue(calendar.tryReserve(origin + 40, 10));
+	}
+
+	@Test
+	public void testReleaseOnlyReservedRuns() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 100);
+		assertTrue(calendar.tryReserve(origin + 10, 10));
+
+		// part of the run, or more than it, stays reserved
+		assertFalse(calendar.release(origin + 12, 1));
+		assertFalse(calendar.release(origin + 10, 11));
+		assertFalse(calendar.tryReserve(origin + 12, 1));
+		assertFalse(calendar.release(origin + 30, 5));
+
+		assertTrue(calendar.release(origin + 10, 10));
+		assertFalse(calendar.release(origin + 10, 10));
+		assertTrue(calendar.tryReserve(origin + 12, 1));
+	}
+
+	@Test
+	public void testPastAndHorizon() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 100);
+
+		assertFalse(calendar.tryReserve(origin - 1, 2));
+		assertTrue(calendar.isInHorizon(origin + 90, 10));
+		assertFalse(calendar.isInHorizon(origin + 91, 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAfterHorizon() {
+		new OccupancyCalendar(origin, 100).tryReserve(origin + 91, 10);
+	}
+
+	/**
+	 * Words of days that slid out of the horizon are reused for later days
+	 */
+	@Test
+	public void testSlidingHorizon() {
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 100);
+		assertTrue(calendar.tryReserve(origin, 100));
+
+		for (int i = 1; i <= 10; i++) {
+			calendar.advanceTo(origin + i * 100);
+			assertFalse(calendar.isReserved(origin + i * 100));
+			assertTrue(calendar.tryReserve(origin + i * 100, 100));
+			assertFalse(calendar.tryReserve(origin + i * 100 + 99, 1));
+		}
+
+		// the origin doesn't move back
+		calendar.advanceTo(origin);
+		assertEquals(origin + 1000, calendar.getOrigin());
+	}
+
+	/**
+	 * Runs are accepted if and only if they don't clash with an accepted run
+	 */
+	@Test
+	public void testRandomMatchesIsClash() {
+		Random random = new Random(42);
+		OccupancyCalendar calendar = new OccupancyCalendar(origin, 500);
+		List<ProductionRun> accepted = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			long start = origin + random.nextInt(450);
+			long duration = 1 + random.nextInt(50);
+			ProductionRun run = new ProductionRun(LocalDate.ofEpochDay(start).atStartOfDay(), duration);
+
+			boolean expected = accepted.stream().noneMatch(other -> PlannerService.isClash(run, other));
+			assertEquals(run.toString(), expected, calendar.tryReserve(start, duration));
+			if (expected)
+				accepted.add(run);
+			if (expected && random.nextInt(4) == 0) {
+				calendar.release(start, duration);
+				accepted.remove(run);
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentReservationsNeverOverlap() throws InterruptedException {
+		final int threads = 8;
+		final OccupancyCalendar calendar = new OccupancyCalendar(origin, 1000);
+		final ConcurrentLinkedQueue<long[]> accepted = new ConcurrentLinkedQueue<>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		for (int t = 0; t < threads; t++) {
+			final Random random = new Random(t);
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < 5000; i++) {
+					long first = origin + random.nextInt(950);
+					long duration = 1 + random.nextInt(50);
+					if (calendar.tryReserve(first, duration))
+						accepted.add(new long[] { first, duration });
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+		int[] reservations = new int[1000];
+		for (long[] run : accepted) {
+			for (long day = run[0]; day < run[0] + run[1]; day++) {
+				reservations[(int) (day - origin)]++;
+			}
+		}
+		for (int day = 0; day < reservations.length; day++) {
+			assertTrue("Day " + day + " reserved " + reservations[day] + " times", reservations[day] <= 1);
+			assertEquals(reservations[day] == 1, calendar.isReserved(origin + day));
+		}
+	}
+
+}
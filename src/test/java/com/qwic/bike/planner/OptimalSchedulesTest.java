@@ -0,0 +1,162 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+
+public class OptimalSchedulesTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	@Test
+	public void testReadmeExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+
+		OptimalSchedules schedules = schedules(Arrays.asList(a, b, c, d));
+
+		// only A, D and C
+		Iterator<int[]> iterator = schedules.iterator();
+		assertArrayEquals(new int[] { 0, 3, 2 }, iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testChoicesOfEachGroupAreCombined() {
+		// X or Y, then Z or W
+		ProductionRun x = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 2);
+		ProductionRun y = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 2);
+		ProductionRun z = new ProductionRun(LocalDateTime.of(2018, 1, 10, 0, 0), 1);
+		ProductionRun w = new ProductionRun(LocalDateTime.of(2018, 1, 10, 0, 0), 3);
+
+		OptimalSchedules schedules = schedules(Arrays.asList(x, y, z, w));
+
+		assertEquals(2, schedules.getGroupCount());
+		assertEquals(2, schedules.getScheduleSize());
+		assertEquals(4, schedules.stream().count());
+	}
+
+	@Test
+	public void testEqualRunsGiveOneSchedule() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+
+		assertEquals(1,
+				schedules(Arrays.asList(a, new ProductionRun(a.getStartDateTime(), 5), a)).stream().count());
+	}
+
+	@Test
+	public void testEmptyInput() {
+		List<int[]> all = schedules(new ArrayList<>()).stream().collect(Collectors.toList());
+
+		assertEquals(1, all.size());
+		assertEquals(0, all.get(0).length);
+	}
+
+	/**
+	 * Schedules are made on demand, even if there are far too many to list
+	 */
+	@Test
+	public void testManySchedulesAreLazy() {
+		List<ProductionRun> runs = new ArrayList<>();
+		// 60 groups of 2 runs that clash: 2^60 schedules
+		for (int g = 0; g < 60; g++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + 10 * g), 2));
+			runs.add(new ProductionRun(validCurrentDate.plusDays(2 + 10 * g), 2));
+		}
+
+		List<int[]> first = schedules(runs).stream().limit(1000).collect(Collectors.toList());
+
+		assertEquals(1000, first.size());
+		assertEquals(1000, first.stream().map(Arrays::toString).distinct().count());
+	}
+
+	/**
+	 * Compare to every subset of a few random runs
+	 */
+	@Test
+	public void testRandomMatchesEverySubset() {
+		Random random = new Random(42);
+		for (int attempt = 0; attempt < 200; attempt++) {
+			List<ProductionRun> runs = new ArrayList<>();
+			for (int i = 0; i < 12; i++) {
+				runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(20)), 1 + random.nextInt(5),
+						1 + random.nextInt(2)));
+			}
+
+			List<int[]> found = schedules(runs).stream().collect(Collectors.toList());
+			Set<List<ProductionRun>> generated = new HashSet<>();
+			for (int[] schedule : found) {
+				generated.add(toRuns(runs, schedule));
+			}
+
+			// distinct, and the same as the largest subsets without a clash
+			assertEquals(found.size(), generated.size());
+			assertEquals(everyLargestSchedule(runs), generated);
+		}
+	}
+
+	private static Set<List<ProductionRun>> everyLargestSchedule(final List<ProductionRun> runs) {
+		Set<List<ProductionRun>> largest = new HashSet<>();
+		int largestSize = 0;
+		for (int subset = 0; subset < 1 << runs.size(); subset++) {
+			int size = Integer.bitCount(subset);
+			if (size < largestSize || !isWithoutClash(runs, subset))
+				continue;
+			if (size > largestSize) {
+				largestSize = size;
+				largest.clear();
+			}
+			List<ProductionRun> schedule = new ArrayList<>();
+			for (int i = 0; i < runs.size(); i++) {
+				if ((subset & 1 << i) != 0)
+					schedule.add(runs.get(i));
+			}
+			schedule.sort(ProductionRun.COMPARATOR);
+			largest.add(schedule);
+		}
+		return largest;
+	}
+
+	private static boolean isWithoutClash(final List<ProductionRun> runs, final int subset) {
+		for (int i = 0; i < runs.size(); i++) {
+			for (int j = i + 1; j < runs.size(); j++) {
+				if ((subset & 1 << i) != 0 && (subset & 1 << j) != 0 && runs.get(i).getStartDay() <= runs.get(j)
+						.getEndDay() && runs.get(j).getStartDay() <= runs.get(i).getEndDay())
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<ProductionRun> toRuns(final List<ProductionRun> runs, final int[] schedule) {
+		List<ProductionRun> scheduled = new ArrayList<>();
+		for (int i : schedule) {
+			scheduled.add(runs.get(i));
+		}
+		scheduled.sort(ProductionRun.COMPARATOR);
+		return scheduled;
+	}
+
+	private static OptimalSchedules schedules(final List<ProductionRun> runs) {
+		return OptimalSchedules.of(RunColumns.of(runs), validCurrentDate, maxRunDuration);
+	}
+
+}
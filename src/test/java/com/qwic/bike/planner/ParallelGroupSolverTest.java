@@ -0,0 +1,147 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.TestUtil;
+import com.qwic.bike.model.ProductionRun;
+
+public class ParallelGroupSolverTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private final SchedulingStrategy greedy = new GreedyEndDateStrategy();
+
+	private ParallelGroupSolver solver;
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// tiny batches, so the groups are split over many tasks
+		this.solver = new ParallelGroupSolver(4, 8);
+		this.random = new Random(42);
+	}
+
+	@After
+	public void afterEachTest() {
+		solver.shutdown();
+	}
+
+	@Test
+	public void testSameExplanationAsSequential() {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(20000)), 1 + random.nextInt(10)));
+		}
+		RunColumns columns = RunColumns.of(runs);
+
+		PlanResult sequential = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, null, false,
+				true);
+		PlanResult parallel = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, solver, false,
+				true);
+
+		assertArrayEquals(sequential.getRejectedRuns(), parallel.getRejectedRuns());
+		assertArrayEquals(sequential.getBlockingRuns(), parallel.getBlockingRuns());
+		ColumnarPlannerTest.assertExplained(columns, parallel);
+	}
+
+	@Test
+	public void testSameAnswerAsSequential() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			final List<ProductionRun> runs = new ArrayList<>();
+			for (int i = 0; i < 5000; i++) {
+				runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(20000)),
+						1 + random.nextInt(10)));
+			}
+			RunColumns columns = RunColumns.of(runs);
+
+			PlanResult sequential = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy);
+			PlanResult parallel = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, solver);
+
+			// same runs, in the same order
+			assertArrayEquals(sequential.getSelectedRuns(), parallel.getSelectedRuns());
+		}
+	}
+
+	@Test
+	public void testAdjacentClashes() {
+		List<ProductionRun> runs = TestUtil.createNonClashingRuns(3000, validCurrentDate.plusDays(1));
+		List<ProductionRun> runsToTest = new ArrayList<>(runs);
+		runsToTest.addAll(TestUtil.createAdjacentClashes(runs));
+		Collections.shuffle(runsToTest, random);
+		RunColumns columns = RunColumns.of(runsToTest);
+
+		PlanResult sequential = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy);
+		PlanResult parallel = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, greedy, solver);
+
+		assertArrayEquals(sequential.getSelectedRuns(), parallel.getSelectedRuns());
+	}
+
+	@Test
+	public void testInterruptStopsSolve() throws InterruptedException {
+		// every run is its own group, and each group takes 2 ms
+		final int groups = 4000;
+		final RunColumns columns = RunColumns.of(TestUtil.createNonClashingRuns(groups, validCurrentDate.plusDays(1)));
+		final AtomicInteger solvedGroups = new AtomicInteger();
+		final SchedulingStrategy slow = (runs, sortedRuns, from, to, selected, offset) -> {
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			solvedGroups.incrementAndGet();
+			return greedy.selectNonClashingRuns(runs, sortedRuns, from, to, selected, offset);
+		};
+
+		final AtomicReference<Throwable> thrown = new AtomicReference<>();
+		final Thread caller = new Thread(() -> {
+			try {
+				ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration, slow, solver);
+			} catch (Throwable e) {
+				thrown.set(e);
+			}
+		});
+		caller.start();
+		Thread.sleep(100);
+		caller.interrupt();
+
+		// the caller stops waiting at once
+		caller.join(1000);
+		assertFalse(caller.isAlive());
+		assertTrue(thrown.get() instanceof CancellationException);
+
+		// the workers finish the group they are on, and then solve no more
+		Thread.sleep(50);
+		final int solvedAtCancel = solvedGroups.get();
+		Thread.sleep(200);
+		assertEquals(solvedAtCancel, solvedGroups.get());
+		assertTrue(solvedAtCancel < groups / 2);
+	}
+
+	@Test
+	public void testEmptyInput() {
+		PlanResult parallel = ColumnarPlanner.plan(RunColumns.of(new ArrayList<>()), validCurrentDate,
+				maxRunDuration, greedy, solver);
+
+		assertArrayEquals(new int[0], parallel.getSelectedRuns());
+	}
+
+}
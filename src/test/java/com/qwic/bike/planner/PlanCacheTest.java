@@ -0,0 +1,76 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+
+public class PlanCacheTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private PlanCache<Integer> cache;
+
+	@Before
+	public void beforeEachTest() {
+		this.cache = new PlanCache<>(2, 1000, clock::get);
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		assertNull(cache.get(key(1)));
+
+		cache.put(key(1), 5);
+
+		assertEquals(Integer.valueOf(5), cache.get(key(1)));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		cache.put(key(1), 1);
+		cache.put(key(2), 2);
+		// key 2 is now the least recently used
+		cache.get(key(1));
+		cache.put(key(3), 3);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(Integer.valueOf(1), cache.get(key(1)));
+		assertNull(cache.get(key(2)));
+		assertEquals(Integer.valueOf(3), cache.get(key(3)));
+	}
+
+	@Test
+	public void testExpired() {
+		cache.put(key(1), 1);
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertEquals(Integer.valueOf(1), cache.get(key(1)));
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		assertNull(cache.get(key(1)));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	/**
+	 * A distinct key for each duration
+	 */
+	private static RunFingerprint key(final long duration) {
+		RunColumns runs = RunColumns.of(Arrays.asList(new ProductionRun(validCurrentDate.plusDays(1), duration)));
+		return RunFingerprint.of(runs, validCurrentDate, 1000);
+	}
+
+}
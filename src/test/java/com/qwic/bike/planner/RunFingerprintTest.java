@@ -0,0 +1,81 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+
+public class RunFingerprintTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private final ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+	private final ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+	private final ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+
+	@Test
+	public void testOrderDoesNotMatter() {
+		List<ProductionRun> runs = new ArrayList<>(Arrays.asList(a, b, c, b));
+		RunFingerprint expected = fingerprint(runs, validCurrentDate);
+
+		Collections.shuffle(runs, new Random(42));
+
+		assertEquals(expected, fingerprint(runs, validCurrentDate));
+		assertEquals(expected.hashCode(), fingerprint(runs, validCurrentDate).hashCode());
+	}
+
+	@Test
+	public void testDuplicatesCount() {
+		assertNotEquals(fingerprint(Arrays.asList(a, b), validCurrentDate),
+				fingerprint(Arrays.asList(a, b, b, b), validCurrentDate));
+	}
+
+	@Test
+	public void testDifferentRuns() {
+		assertNotEquals(fingerprint(Arrays.asList(a, b), validCurrentDate),
+				fingerprint(Arrays.asList(a, new ProductionRun(b.getStartDateTime(), 8)), validCurrentDate));
+	}
+
+	@Test
+	public void testSameValidRunsAtDifferentTimes() {
+		List<ProductionRun> runs = Arrays.asList(a, b, c);
+
+		// no run moves into the past between these times
+		assertEquals(fingerprint(runs, validCurrentDate), fingerprint(runs, validCurrentDate.plusHours(12)));
+	}
+
+	@Test
+	public void testDifferentSelections() {
+		RunColumns runs = RunColumns.of(Arrays.asList(a, b, c));
+
+		assertNotEquals(RunFingerprint.of(runs, validCurrentDate, maxRunDuration, GreedyEndDateStrategy.NAME),
+				RunFingerprint.of(runs, validCurrentDate, maxRunDuration, WeightedStrategy.NAME));
+	}
+
+	@Test
+	public void testRunMovesIntoPast() {
+		List<ProductionRun> runs = Arrays.asList(a, b, c);
+
+		RunFingerprint before = fingerprint(runs, validCurrentDate);
+		RunFingerprint after = fingerprint(runs, a.getStartDateTime());
+
+		assertNotEquals(before, after);
+		assertEquals(2, after.getValidCount());
+	}
+
+	private static RunFingerprint fingerprint(final List<ProductionRun> runs, final LocalDateTime currentDateTime) {
+		return RunFingerprint.of(RunColumns.of(runs), currentDateTime, maxRunDuration);
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.util.IndexSortUtils;
+
+public class RunIntervalTreeTest {
+
+	private static final LocalDateTime firstDay = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testExample() {
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+		ProductionRun d = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 3);
+		RunIntervalTree tree = RunIntervalTree.of(RunColumns.of(Arrays.asList(a, b, c, d)));
+
+		// D ends before B, so it is first
+		assertArrayEquals(new int[] { 3, 1 }, tree.stab(day(2018, 1, 10)));
+		assertArrayEquals(new int[] { 1, 2 }, tree.stab(day(2018, 1, 15)));
+		assertArrayEquals(new int[0], tree.stab(day(2018, 1, 7)));
+		assertArrayEquals(new int[] { 0, 3, 1 }, tree.overlapping(day(2018, 1, 6), day(2018, 1, 9)));
+		assertEquals(4, tree.countOverlapping(day(2018, 1, 1), day(2018, 2, 1)));
+	}
+
+	@Test
+	public void testRandomQueriesMatchEveryRun() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns runs = RunColumns.of(createRandomRuns(500));
+			RunIntervalTree tree = RunIntervalTree.of(runs);
+
+			for (int query = 0; query < 100; query++) {
+				long fromDay = firstDay.toLocalDate().toEpochDay() + random.nextInt(550);
+				long toDay = fromDay + random.nextInt(30);
+
+				int[] expected = getOverlappingRuns(runs, fromDay, toDay);
+				int[] found = tree.overlapping(fromDay, toDay);
+				Arrays.sort(found);
+
+				assertArrayEquals(expected, found);
+				assertEquals(getOverlappingRuns(runs, fromDay, fromDay).length, tree.stab(fromDay).length);
+			}
+		}
+	}
+
+	@Test
+	public void testSortedInput() {
+		RunColumns runs = RunColumns.of(createRandomRuns(200));
+		int[] byStart = new int[runs.size()];
+		for (int i = 0; i < byStart.length; i++) {
+			byStart[i] = i;
+		}
+		IndexSortUtils.sort(byStart, runs.startDays, runs.endDays);
+
+		RunIntervalTree sorted = RunIntervalTree.ofSorted(runs, byStart);
+		RunIntervalTree unsorted = RunIntervalTree.of(runs);
+
+		long day = firstDay.toLocalDate().toEpochDay() + 100;
+		assertArrayEquals(unsorted.overlapping(day, day + 10), sorted.overlapping(day, day + 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsortedInput() {
+		ProductionRun late = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+		ProductionRun early = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+
+		RunIntervalTree.ofSorted(RunColumns.of(Arrays.asList(late, early)), new int[] { 0, 1 });
+	}
+
+	@Test
+	public void testEmptyInput() {
+		RunIntervalTree tree = RunIntervalTree.of(RunColumns.of(new ArrayList<>()));
+
+		assertEquals(0, tree.size());
+		assertEquals(0, tree.stab(day(2018, 1, 1)).length);
+	}
+
+	private List<ProductionRun> createRandomRuns(final int count) {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			runs.add(new ProductionRun(firstDay.plusDays(random.nextInt(count)), 1 + random.nextInt(40)));
+		}
+		return runs;
+	}
+
+	/**
+	 * Check every run, to test the tree against
+	 */
+	private static int[] getOverlappingRuns(final RunColumns runs, final long fromDay, final long toDay) {
+		return IntStream.range(0, runs.size())
+				.filter(i -> runs.getStartDay(i) <= toDay && runs.getEndDay(i) >= fromDay).toArray();
+	}
+
+	private static long day(final int year, final int month, final int dayOfMonth) {
+		return LocalDateTime.of(year, month, dayOfMonth, 0, 0).toLocalDate().toEpochDay();
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.qwic.bike.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+import com.qwic.bike.service.PlannerService;
+
+public class WeightedStrategyTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private static final long maxRunDuration = 1000;
+
+	private final SchedulingStrategy weighted = new WeightedStrategy();
+
+	private Random random;
+
+	@Before
+	public void beforeEachTest() {
+		// fixed seed, so failures can be reproduced
+		this.random = new Random(42);
+	}
+
+	@Test
+	public void testHeavyRunBeatsMoreRuns() {
+		ProductionRun heavy = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 10, 100);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 3, 0, 0), 2, 30);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 6, 0, 0), 2, 30);
+
+		PlanResult plan = plan(Arrays.asList(b, heavy, c));
+
+		assertEquals(Arrays.asList(heavy), plan.getSelectedProductionRuns());
+		assertEquals(100, plan.getSelectedQuantity());
+	}
+
+	@Test
+	public void testRunClashingWithEarlierGroup() {
+		// b starts after a ends, but c clashes with both, so all three are one group
+		ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 2, 1);
+		ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 6, 0, 0), 2, 1);
+		ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 10, 5);
+
+		PlanResult plan = plan(Arrays.asList(a, b, c));
+
+		assertEquals(Arrays.asList(c), plan.getSelectedProductionRuns());
+	}
+
+	@Test
+	public void testEqualQuantitiesGiveMostRuns() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			RunColumns columns = RunColumns.of(createRandomRuns(200, 1));
+
+			PlanResult greedyPlan = ColumnarPlanner.plan(columns, validCurrentDate, maxRunDuration,
+					new GreedyEndDateStrategy());
+
+			assertEquals(greedyPlan.getSelectedCount(), plan(columns).getSelectedCount());
+		}
+	}
+
+	@Test
+	public void testRandomRunsAreOptimal() {
+		for (int attempt = 0; attempt < 20; attempt++) {
+			List<ProductionRun> runs = createRandomRuns(200, 100);
+
+			PlanResult plan = plan(runs);
+			List<ProductionRun> selected = plan.getSelectedProductionRuns();
+
+			// no clashes in the answer
+			for (int i = 0; i < selected.size(); i++) {
+				for (int j = i + 1; j < selected.size(); j++) {
+					assertFalse(PlannerService.isClash(selected.get(i), selected.get(j)));
+				}
+			}
+
+			assertEquals(getOptimalQuantity(runs), plan.getSelectedQuantity());
+		}
+	}
+
+	@Test
+	public void testEmptyInput() {
+		assertEquals(0, plan(new ArrayList<>()).getSelectedCount());
+	}
+
+	private PlanResult plan(final List<ProductionRun> runs) {
+		return plan(RunColumns.of(runs));
+	}
+
+	private PlanResult plan(final RunColumns runs) {
+		return ColumnarPlanner.plan(runs, validCurrentDate, maxRunDuration, weighted);
+	}
+
+	private List<ProductionRun> createRandomRuns(final int count, final int maxQuantity) {
+		final List<ProductionRun> runs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			runs.add(new ProductionRun(validCurrentDate.plusDays(1 + random.nextInt(count)), 1 + random.nextInt(20),
+					1 + random.nextInt(maxQuantity)));
+		}
+		return runs;
+	}
+
+	/**
+	 * Quadratic dynamic programming answer, to check the planner against
+	 */
+	private static long getOptimalQuantity(final List<ProductionRun> runs) {
+		final List<ProductionRun> sorted = new ArrayList<>(runs);
+		sorted.sort(ProductionRun.COMPARATOR);
+
+		// best[i] is the most bikes from non-clashing runs that end with run i
+		final long[] best = new long[sorted.size()];
+		long answer = 0;
+		for (int i = 0; i < sorted.size(); i++) {
+			best[i] = sorted.get(i).getQuantity();
+			for (int j = 0; j < i; j++) {
+				if (sorted.get(j).getEndDateTime().isBefore(sorted.get(i).getStartDateTime())) {
+					best[i] = Math.max(best[i], best[j] + sorted.get(i).getQuantity());
+				}
+			}
+			answer = Math.max(answer, best[i]);
+		}
+		return answer;
+	}
+
+}
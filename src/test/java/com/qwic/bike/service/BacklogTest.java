@@ -0,0 +1,56 @@
+package com.qwic.bike.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.qwic.bike.model.ProductionRun;
+
+public class BacklogTest {
+
+	private static final LocalDateTime validCurrentDate = LocalDateTime.of(2018, 1, 1, 0, 0);
+
+	private final ProductionRun a = new ProductionRun(LocalDateTime.of(2018, 1, 2, 0, 0), 5);
+	private final ProductionRun b = new ProductionRun(LocalDateTime.of(2018, 1, 9, 0, 0), 7);
+	private final ProductionRun c = new ProductionRun(LocalDateTime.of(2018, 1, 15, 0, 0), 6);
+
+	private final AtomicLong versions = new AtomicLong();
+
+	@Test
+	public void testReplaceRunsAtLimit() {
+		Backlog backlog = new Backlog(Arrays.asList(a, b), versions::incrementAndGet);
+
+		// the limit applies after the removals
+		Backlog.Snapshot plan = backlog.update(Collections.singletonList(c), Collections.singletonList(b),
+				validCurrentDate, 3, null);
+
+		assertEquals(2, plan.getRunCount());
+		assertEquals(2, plan.getTotals().getRuns());
+	}
+
+	@Test
+	public void testLimitChangesNothing() {
+		Backlog backlog = new Backlog(Arrays.asList(a, b), versions::incrementAndGet);
+		Backlog.Snapshot before = backlog.view(validCurrentDate);
+
+		try {
+			backlog.update(Arrays.asList(b, c), Collections.singletonList(a), validCurrentDate, 3, null);
+			fail("Expected a BacklogLimitException");
+		} catch (BacklogLimitException e) {
+			assertEquals("A backlog may have at most 2 runs", e.getMessage());
+		}
+
+		// the removed run is back
+		Backlog.Snapshot after = backlog.view(validCurrentDate);
+		assertEquals(before.getETag(), after.getETag());
+		assertEquals(2, after.getRunCount());
+		assertEquals(before.getTotals().getRuns(), after.getTotals().getRuns());
+	}
+
+}
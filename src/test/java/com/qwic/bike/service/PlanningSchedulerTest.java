@@ -0,0 +1,99 @@
+package com.qwic.bike.service;
+
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "qwic-test-props.planning-threads=1", "qwic-test-props.planning-queue-limit=1" })
+public class PlanningSchedulerTest {
+
+	@Autowired
+	private PlanningScheduler planningScheduler;
+
+	@Test
+	public void testRunsOffCallingThread() {
+		final Thread caller = Thread.currentThread();
+
+		StepVerifier.create(planningScheduler.schedule(() -> Thread.currentThread() != caller))
+				.expectNext(true).verifyComplete();
+	}
+
+	@Test
+	public void testRejectedWhenQueueFull() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// occupy the only thread, then fill the queue
+		final Disposable running = planningScheduler.schedule(() -> {
+			started.countDown();
+			return release.await(10, TimeUnit.SECONDS);
+		}).subscribe();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		final Disposable queued = planningScheduler.schedule(() -> true).subscribe();
+
+		try {
+			StepVerifier.create(planningScheduler.schedule(() -> true))
+					.expectError(PlannerOverloadedException.class).verify();
+		} finally {
+			release.countDown();
+			running.dispose();
+			queued.dispose();
+		}
+	}
+
+	@Test
+	public void testCancelledSolveLeavesQueue() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// occupy the only thread, fill the queue, then cancel the queued solve
+		final Disposable running = planningScheduler.schedule(() -> {
+			started.countDown();
+			return release.await(10, TimeUnit.SECONDS);
+		}).subscribe();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		planningScheduler.schedule(() -> true).subscribe().dispose();
+
+		try {
+			// the cancelled solve gave its place back, so this one is queued
+			StepVerifier.create(planningScheduler.schedule(() -> true)).then(release::countDown).expectNext(true)
+					.verifyComplete();
+		} finally {
+			release.countDown();
+			running.dispose();
+		}
+	}
+
+	@Test
+	public void testDeadlineInterruptsSolve() throws InterruptedException {
+		final CountDownLatch interrupted = new CountDownLatch(1);
+
+		StepVerifier.create(planningScheduler.schedule(() -> {
+			// stand in for a long solve, that checks for interrupts
+			while (!Thread.currentThread().isInterrupted()) {
+				Thread.yield();
+			}
+			interrupted.countDown();
+			return true;
+		}, Duration.ofMillis(100))).expectError(TimeoutException.class).verify();
+
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+
+		// the thread is free for the next solve
+		StepVerifier.create(planningScheduler.schedule(() -> 1)).expectNext(1).verifyComplete();
+	}
+
+}